@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.benchmarks;
+
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
+import static org.apache.uima.fit.factory.CollectionReaderFactory.createReaderDescription;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.fit.component.NoOpAnnotator;
+import org.apache.uima.fit.pipeline.SimplePipeline;
+
+import de.tudarmstadt.ukp.dkpro.core.api.io.ResourceCollectionReaderBase;
+import de.tudarmstadt.ukp.dkpro.core.api.resources.CompressionUtils;
+import de.tudarmstadt.ukp.experiments.distantsrl.io.PrefetchingXmiReader;
+import de.tudarmstadt.ukp.experiments.distantsrl.io.SrlOutputFormat;
+
+/**
+ * Compares the output formats of the SRL pipelines on labeled documents, e.g.
+ * the output of a previous run.
+ *
+ * <pre>
+ * OutputFormatBenchmark sourceLocation workLocation
+ * </pre>
+ *
+ * Every format writes all *.xmi.bz2 documents of the source location to its
+ * own directory below the work location. The benchmark reports the bytes
+ * written and the seconds per GB of uncompressed input XMI; the time to read
+ * the input, measured in a run without writer, is subtracted. It is a plain
+ * main class rather than a JMH benchmark, a run over a real corpus takes
+ * minutes.
+ *
+ */
+public class OutputFormatBenchmark {
+
+    public static void main(String[] args) throws UIMAException, IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: OutputFormatBenchmark sourceLocation workLocation");
+            System.exit(2);
+        }
+        String sourceLocation = args[0];
+        File workLocation = new File(args[1]);
+
+        double inputGb = uncompressedSize(new File(sourceLocation)) / (1024.0 * 1024.0 * 1024.0);
+        System.out.printf("input: %.3f GB uncompressed XMI%n", inputGb);
+
+        // warm up the reader and the file cache, then measure reading alone
+        run(sourceLocation, createEngineDescription(NoOpAnnotator.class));
+        long readNanos = run(sourceLocation, createEngineDescription(NoOpAnnotator.class));
+
+        System.out.println("format\tbytes\tsec/GB");
+        for (SrlOutputFormat format : SrlOutputFormat.values()) {
+            File target = new File(workLocation, format.name().toLowerCase());
+            FileUtils.deleteQuietly(target);
+            long nanos = run(sourceLocation, format.createWriterDescription(target.getPath()));
+            double seconds = Math.max(0, nanos - readNanos) / 1e9;
+            System.out.printf("%s\t%d\t%.2f%n", format, FileUtils.sizeOfDirectory(target), seconds / inputGb);
+        }
+    }
+
+    private static long run(String sourceLocation, AnalysisEngineDescription writer)
+        throws UIMAException, IOException {
+        CollectionReaderDescription reader = createReaderDescription(
+                PrefetchingXmiReader.class,
+                ResourceCollectionReaderBase.PARAM_SOURCE_LOCATION, sourceLocation,
+                ResourceCollectionReaderBase.PARAM_PATTERNS, new String[] { "*.xmi.bz2" });
+        long start = System.nanoTime();
+        SimplePipeline.runPipeline(reader, writer);
+        return System.nanoTime() - start;
+    }
+
+    private static long uncompressedSize(File sourceLocation) throws IOException {
+        long size = 0;
+        File[] files = sourceLocation.listFiles();
+        if (files == null) {
+            return size;
+        }
+        for (File file : files) {
+            if (!file.getName().endsWith(".xmi.bz2")) {
+                continue;
+            }
+            InputStream is = null;
+            try {
+                is = CompressionUtils.getInputStream(file.getName(), new FileInputStream(file));
+                size += IOUtils.copyLarge(is, new NullOutputStream());
+            } finally {
+                IOUtils.closeQuietly(is);
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,127 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.benchmarks;
+
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.cas.impl.Serialization;
+import org.apache.uima.fit.factory.JCasFactory;
+import org.apache.uima.jcas.JCas;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.FrameNetRoleAnnotator;
+import de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.FrameNetRoleAnnotatorGerman;
+import de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.SrlStatistics;
+
+/**
+ * Time of the role annotator (prediction mode) on one document of
+ * {@link SyntheticDocuments}, including the SRL log it writes.
+ *
+ * Every call gets the same unlabeled document: the CAS is reset and
+ * deserialized from a snapshot before each invocation, outside the measured
+ * time, so the CAS heap does not grow with the removed annotations of earlier
+ * calls. Every iteration starts a new engine with an empty log file, so the
+ * log does not grow over the whole run either.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(2)
+public class RoleAnnotatorBenchmark {
+
+    @Param({ "en", "de" })
+    public String language;
+
+    @Param("200")
+    public int sentences;
+
+    @Param(SemLinkFixture.BUNDLED)
+    public String semLinkLocation;
+
+    private byte[] snapshot;
+    private File logFile;
+    private AnalysisEngine engine;
+    private JCas jcas;
+
+    @Setup
+    public void setUp() throws IOException, UIMAException {
+        jcas = JCasFactory.createJCas();
+        new SyntheticDocuments(new SyntheticCorpus(language.equals("de"), 42)).fill(jcas, sentences);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Serialization.serializeCAS(jcas.getCas(), out);
+        snapshot = out.toByteArray();
+    }
+
+    @Setup(Level.Iteration)
+    public void startEngine() throws IOException, UIMAException {
+        String mappingLoc = SemLinkFixture.mappingLocation(semLinkLocation);
+        logFile = File.createTempFile("srlLogFile", ".log");
+        if (language.equals("de")) {
+            engine = createEngine(FrameNetRoleAnnotatorGerman.class,
+                    FrameNetRoleAnnotatorGerman.PARAM_OUTPUT_FILE, logFile.getPath(),
+                    FrameNetRoleAnnotatorGerman.PARAM_SEMLINK_LOCATION, mappingLoc);
+        } else {
+            engine = createEngine(FrameNetRoleAnnotator.class,
+                    FrameNetRoleAnnotator.PARAM_EVAL_MODE, false,
+                    FrameNetRoleAnnotator.PARAM_OUTPUT_FILE, logFile.getPath(),
+                    FrameNetRoleAnnotator.PARAM_SEMLINK_LOCATION, mappingLoc);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void restoreDocument() {
+        jcas.reset();
+        Serialization.deserializeCAS(jcas.getCas(), new ByteArrayInputStream(snapshot));
+    }
+
+    @Benchmark
+    public void process() throws UIMAException {
+        engine.process(jcas);
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopEngine() throws UIMAException {
+        engine.collectionProcessComplete();
+        engine.destroy();
+        logFile.delete();
+        SrlStatistics.statsFile(logFile).delete();
+    }
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.FeatureTuple;
+import de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.RoleInducer;
+import de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.RoleInducerGerman;
+
+/**
+ * Throughput of the role rules in dependencies per microsecond, over the
+ * tuples of a {@link SyntheticCorpus}: {@code labelDependent} alone, and
+ * together with the SemLink resolution of the label as the role annotators
+ * call them.
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class RuleEvaluationBenchmark {
+
+    static final int TUPLES = 4096;
+
+    @Param({ "en", "de" })
+    public String language;
+
+    @Param(SemLinkFixture.BUNDLED)
+    public String semLinkLocation;
+
+    private boolean german;
+    private RoleInducer english;
+    private RoleInducerGerman germanInducer;
+    private FeatureTuple[] tuples;
+
+    @Setup
+    public void setUp() throws IOException {
+        german = language.equals("de");
+        String mappingLoc = SemLinkFixture.mappingLocation(semLinkLocation);
+        if (german) {
+            germanInducer = new RoleInducerGerman(mappingLoc);
+        } else {
+            english = new RoleInducer(mappingLoc);
+        }
+        tuples = new SyntheticCorpus(german, 42).tuples(TUPLES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TUPLES)
+    public void labelDependent(Blackhole blackhole) {
+        for (FeatureTuple t : tuples) {
+            blackhole.consume(label(t));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TUPLES)
+    public void labelAndResolve(Blackhole blackhole) {
+        for (FeatureTuple t : tuples) {
+            String label = label(t);
+            blackhole.consume(german ? germanInducer.resolve(label, t.getFrame())
+                    : english.resolve(label, t.getFrame()));
+        }
+    }
+
+    private String label(FeatureTuple t) {
+        if (german) {
+            return germanInducer.labelDependent(t.getDepType(), t.getDependentPos(), t.getDepSemField(),
+                    t.getDepNeTag(), t.getGovSemField());
+        }
+        return english.labelDependent(t.getDepType(), t.getDependentPos(), t.getDepSemField(), t.getDepNeTag(),
+                t.getGovSemField());
+    }
+}
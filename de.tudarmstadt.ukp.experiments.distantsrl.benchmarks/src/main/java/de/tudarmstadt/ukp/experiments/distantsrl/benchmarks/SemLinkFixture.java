@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.benchmarks;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import org.apache.commons.io.IOUtils;
+
+import de.tudarmstadt.ukp.experiments.distantsrl.utils.SemLinkSnapshot;
+
+/**
+ * The SemLink role mapping of the benchmarks: the excerpt bundled in
+ * src/main/resources/semlink, which covers the frames of the
+ * {@link SyntheticCorpus}, or a SemLink directory given with
+ * {@code -p semLinkLocation=...}.
+ *
+ */
+public class SemLinkFixture {
+
+    public static final String MAPPING_FILE = "VN-FNRoleMapping.txt";
+
+    /**
+     * The semLinkLocation parameter value of the bundled excerpt.
+     */
+    public static final String BUNDLED = "bundled";
+
+    private static final String RESOURCE = "/semlink/" + MAPPING_FILE;
+
+    /**
+     * @param semLinkLocation directory of the SemLink mapping file, or
+     *            {@link #BUNDLED}
+     * @return the mapping location as the role inducers expect it, i.e. ending
+     *         with a separator
+     */
+    public static String mappingLocation(String semLinkLocation) throws IOException {
+        if (!semLinkLocation.equals(BUNDLED)) {
+            return new File(semLinkLocation).getAbsolutePath() + File.separator;
+        }
+        // the role inducers read a file, and write the SemLink snapshot next to it
+        File directory = Files.createTempDirectory("semlink").toFile();
+        directory.deleteOnExit();
+        File mappingFile = new File(directory, MAPPING_FILE);
+        mappingFile.deleteOnExit();
+        SemLinkSnapshot.snapshotFile(mappingFile.getPath()).deleteOnExit();
+        InputStream is = SemLinkFixture.class.getResourceAsStream(RESOURCE);
+        if (is == null) {
+            throw new FileNotFoundException(RESOURCE);
+        }
+        try {
+            Files.copy(is, mappingFile.toPath());
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+        return directory.getAbsolutePath() + File.separator;
+    }
+
+    /**
+     * @return the SemLink mapping file of a mapping location
+     */
+    public static File mappingFile(String mappingLocation) {
+        return new File(mappingLocation + MAPPING_FILE);
+    }
+}
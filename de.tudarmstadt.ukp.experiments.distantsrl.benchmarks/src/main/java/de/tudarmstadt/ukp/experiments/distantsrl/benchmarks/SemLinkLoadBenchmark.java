@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.tudarmstadt.ukp.experiments.distantsrl.utils.RoleMappingUtil;
+import de.tudarmstadt.ukp.experiments.distantsrl.utils.SemLinkMapping;
+import de.tudarmstadt.ukp.experiments.distantsrl.utils.SemLinkSnapshot;
+
+/**
+ * Time to load the SemLink mapping, from the xml and from the binary snapshot,
+ * and the heap the loaded mapping retains (the retainedKiB counter of
+ * {@code retainedHeap}; its time includes the garbage collections and is
+ * meaningless).
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class SemLinkLoadBenchmark {
+
+    @Param(SemLinkFixture.BUNDLED)
+    public String semLinkLocation;
+
+    private File source;
+    private File snapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        source = SemLinkFixture.mappingFile(SemLinkFixture.mappingLocation(semLinkLocation));
+        // not next to the source, to leave a given SemLink directory untouched
+        snapshot = File.createTempFile("semlink", SemLinkSnapshot.SNAPSHOT_SUFFIX);
+        snapshot.deleteOnExit();
+        SemLinkSnapshot.write(RoleMappingUtil.readSemLink(source.getPath()), source, snapshot);
+    }
+
+    @Benchmark
+    public SemLinkMapping parseXml() {
+        return RoleMappingUtil.readSemLink(source.getPath());
+    }
+
+    @Benchmark
+    public SemLinkMapping readSnapshot() throws IOException {
+        return SemLinkSnapshot.read(source, snapshot);
+    }
+
+    @Benchmark
+    public SemLinkMapping retainedHeap(Heap heap) {
+        long before = usedHeap();
+        SemLinkMapping mapping = RoleMappingUtil.readSemLink(source.getPath());
+        heap.retainedKiB = (usedHeap() - before) / 1024;
+        return mapping;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Heap {
+        public long retainedKiB;
+    }
+}
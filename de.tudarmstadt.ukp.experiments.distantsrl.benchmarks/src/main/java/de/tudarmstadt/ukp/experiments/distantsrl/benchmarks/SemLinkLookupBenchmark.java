@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.FeatureTuple;
+import de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.FnRoleResolution;
+import de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.RoleInducer;
+import de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.RoleInducerGerman;
+import de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.RoleRuleSet;
+import de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.SemLinkRoleResolver;
+import de.tudarmstadt.ukp.experiments.distantsrl.utils.SemLinkMapping;
+
+/**
+ * Latency of a single {@code vn2fnLabel} lookup, for the labels and frames
+ * the rules produce on a {@link SyntheticCorpus}. {@code vn2fnLabel} hits the
+ * memoized resolutions; {@code resolveCold} computes the resolution from the
+ * SemLink mapping, as on the first lookup of a label and frame.
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(2)
+public class SemLinkLookupBenchmark {
+
+    static final int LOOKUPS = 1024; // a power of two
+
+    @Param({ "en", "de" })
+    public String language;
+
+    @Param(SemLinkFixture.BUNDLED)
+    public String semLinkLocation;
+
+    private boolean german;
+    private RoleInducer english;
+    private RoleInducerGerman germanInducer;
+    private SemLinkMapping mapping;
+    private final String[] labels = new String[LOOKUPS];
+    private final String[] frames = new String[LOOKUPS];
+    private int next = 0;
+
+    @Setup
+    public void setUp() throws IOException {
+        german = language.equals("de");
+        String mappingLoc = SemLinkFixture.mappingLocation(semLinkLocation);
+        mapping = SemLinkRoleResolver.getShared(SemLinkFixture.mappingFile(mappingLoc).getPath()).getMapping();
+        if (german) {
+            germanInducer = new RoleInducerGerman(mappingLoc);
+        } else {
+            english = new RoleInducer(mappingLoc);
+        }
+        // only the labels the rules produce, without the dependencies no rule covers
+        SyntheticCorpus corpus = new SyntheticCorpus(german, 42);
+        List<FeatureTuple> labeled = new ArrayList<FeatureTuple>();
+        List<String> labelsOfTuples = new ArrayList<String>();
+        while (labeled.size() < LOOKUPS) {
+            FeatureTuple t = corpus.nextTuple();
+            String label = german
+                    ? germanInducer.labelDependent(t.getDepType(), t.getDependentPos(), t.getDepSemField(),
+                            t.getDepNeTag(), t.getGovSemField())
+                    : english.labelDependent(t.getDepType(), t.getDependentPos(), t.getDepSemField(),
+                            t.getDepNeTag(), t.getGovSemField());
+            if (!label.equals(RoleRuleSet.NO_ROLE_LABEL)) {
+                labeled.add(t);
+                labelsOfTuples.add(label);
+            }
+        }
+        for (int i = 0; i < LOOKUPS; i++) {
+            labels[i] = labelsOfTuples.get(i);
+            frames[i] = labeled.get(i).getFrame();
+        }
+    }
+
+    @Benchmark
+    public String vn2fnLabel() {
+        int i = next++ & (LOOKUPS - 1);
+        return german ? germanInducer.vn2fnLabel(labels[i], frames[i]) : english.vn2fnLabel(labels[i], frames[i]);
+    }
+
+    @Benchmark
+    public FnRoleResolution resolveCold() {
+        int i = next++ & (LOOKUPS - 1);
+        return new SemLinkRoleResolver(mapping).resolve(labels[i], frames[i]);
+    }
+}
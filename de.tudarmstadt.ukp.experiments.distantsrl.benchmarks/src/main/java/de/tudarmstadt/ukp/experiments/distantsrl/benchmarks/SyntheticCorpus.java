@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.FeatureTuple;
+
+/**
+ * Random rule inputs with roughly the distribution of the verb dependencies of
+ * sense-tagged targets in ukWaC (English) and SdeWaC (German): mostly
+ * subjects and objects, a long tail of prepositional and clausal dependents,
+ * and about a third of dependency types that no rule covers.
+ *
+ * The generator is seeded, so every benchmark run sees the same tuples.
+ *
+ */
+public class SyntheticCorpus {
+
+    private static final String[][] FRAMES_EN = {
+        {"Removing", "remove"}, {"Placing", "put"}, {"Statement", "say"}, {"Telling", "tell"},
+        {"Request", "ask"}, {"Communication_response", "reply"}, {"Self_motion", "walk"}, {"Motion", "move"},
+        {"Arriving", "arrive"}, {"Departing", "leave"}, {"Cause_motion", "pull"}, {"Bringing", "bring"},
+        {"Sending", "send"}, {"Giving", "give"}, {"Getting", "get"}, {"Commerce_buy", "buy"},
+        {"Commerce_sell", "sell"}, {"Commerce_pay", "pay"}, {"Possession", "own"},
+        {"Perception_experience", "see"}, {"Perception_active", "watch"}, {"Experiencer_focus", "love"},
+        {"Experiencer_obj", "surprise"}, {"Desiring", "want"}, {"Awareness", "know"},
+        {"Coming_to_believe", "conclude"}, {"Judgment", "praise"}, {"Killing", "kill"},
+        {"Cause_harm", "hit"}, {"Cutting", "cut"}, {"Ingestion", "eat"}, {"Creating", "create"},
+        {"Building", "build"}, {"Text_creation", "write"}, {"Attaching", "attach"}, {"Filling", "fill"},
+        {"Emptying", "empty"}, {"Cause_change", "change"}, {"Becoming", "become"},
+        {"Cause_change_of_position_on_a_scale", "raise"}, {"Change_position_on_a_scale", "rise"},
+        {"Accomplishment", "achieve"}, {"Activity_start", "begin"}, {"Activity_finish", "finish"},
+        {"Using", "use"}, {"Contacting", "call"}, {"Meet_with", "meet"}, {"Hiring", "hire"},
+        {"Choosing", "choose"}, {"Assistance", "help"}, {"Being_located", "stand"}, {"Residence", "live"},
+        {"Expensiveness", "cost"}, {"Causation", "cause"}, {"Reasoning", "argue"},
+        {"Education_teaching", "teach"},
+        // frames without SemLink entry
+        {"Leadership", "lead"}, {"Competition", "compete"}, {"Weather", "rain"}};
+
+    private static final String[][] FRAMES_DE = {
+        {"Removing", "entfernen"}, {"Placing", "stellen"}, {"Statement", "sagen"}, {"Telling", "erzaehlen"},
+        {"Request", "bitten"}, {"Self_motion", "laufen"}, {"Motion", "bewegen"}, {"Arriving", "ankommen"},
+        {"Departing", "verlassen"}, {"Bringing", "bringen"}, {"Sending", "schicken"}, {"Giving", "geben"},
+        {"Getting", "bekommen"}, {"Commerce_buy", "kaufen"}, {"Commerce_sell", "verkaufen"},
+        {"Commerce_pay", "zahlen"}, {"Possession", "besitzen"}, {"Perception_experience", "sehen"},
+        {"Experiencer_focus", "lieben"}, {"Desiring", "wollen"}, {"Awareness", "wissen"},
+        {"Judgment", "loben"}, {"Killing", "toeten"}, {"Ingestion", "essen"}, {"Creating", "schaffen"},
+        {"Building", "bauen"}, {"Text_creation", "schreiben"}, {"Cause_change", "aendern"},
+        {"Becoming", "werden"}, {"Change_position_on_a_scale", "steigen"}, {"Activity_start", "beginnen"},
+        {"Using", "benutzen"}, {"Meet_with", "treffen"}, {"Assistance", "helfen"}, {"Residence", "wohnen"},
+        {"Causation", "verursachen"}, {"Education_teaching", "lehren"},
+        // frames without SemLink entry
+        {"Leadership", "fuehren"}, {"Competition", "konkurrieren"}};
+
+    private static final Choice DEP_TYPE_EN = new Choice(
+            "nsubj:18", "dobj:14", "prep_in:6", "prep_to:4", "prep_with:3", "prep_for:3", "prep_on:3",
+            "prep_at:2", "prep_from:2", "prep_of:2", "prep_into:1", "prep_over:1", "prep_after:1",
+            "prep_during:1", "prep_as:1", "prep_under:1", "prep_through:1", "nsubjpass:3", "iobj:1",
+            "agent:1", "csubj:1", "ccomp:3", "xcomp:3", "advmod:8", "aux:8", "auxpass:2", "neg:2",
+            "mark:2", "dep:4", "advcl:3", "tmod:1", "prt:1", "conj_and:3", "parataxis:1", "punct:6");
+
+    private static final Choice DEP_TYPE_DE = new Choice(
+            "SB:20", "OA:14", "DA:3", "OC:5", "OP:4", "OG:1", "OA2:1", "SBP:2", "RS:1", "NMC:1",
+            "MI:1", "MW:1", "ML:2", "MO:14", "NG:2", "SVP:4", "PD:3", "CP:2", "RE:1", "CJ:3", "CD:2",
+            "PUNC:8");
+
+    private static final Choice POS_EN = new Choice(
+            "NN:40", "NP:15", "PR:20", "CARD:5", "ADJ:5", "ADV:8", "V:7");
+
+    private static final Choice POS_DE = new Choice(
+            "NN:38", "NP:12", "PR:22", "CARD:5", "ADJ:6", "ADV:9", "V:8");
+
+    private static final Choice DEP_SEM_FIELD_EN = new Choice(
+            "person:20", "group:6", "location:8", "time:6", "quantity:3", "artifact:12", "act:8",
+            "communication:6", "cognition:5", "attribute:4", "state:3", "event:3", "object:3",
+            "UNKNOWN:13");
+
+    private static final Choice DEP_SEM_FIELD_DE = new Choice(
+            "Mensch:20", "Gruppe:6", "Ort:8", "Zeit:6", "Menge:3", "Artefakt:12", "Geschehen:8",
+            "Kommunikation:6", "Kognition:5", "Attribut:4", "Zustand:3", "Objekt:3", "UNKNOWN:16");
+
+    private static final Choice NE_TAG_EN = new Choice(
+            "notANamedEntity:80", "person:8", "location:6", "group:6");
+
+    private static final Choice NE_TAG_DE = new Choice(
+            "notANamedEntity:80", "i-per:8", "i-loc:6", "i-org:4", "i-misc:2");
+
+    private static final Choice GOV_SEM_FIELD_EN = new Choice(
+            "communication:18", "motion:12", "possession:10", "change:12", "cognition:10",
+            "perception:5", "emotion:4", "contact:8", "stative:10", "social:6", "creation:5");
+
+    private static final Choice GOV_SEM_FIELD_DE = new Choice(
+            "Kommunikation:18", "Lokation:12", "Besitz:10", "Veraenderung:12", "Kognition:10",
+            "Perzeption:5", "Gefuehl:4", "Kontakt:8", "Allgemein:10", "Gesellschaft:6", "Schoepfung:5");
+
+    private final boolean german;
+    private final Random random;
+    private final String[][] frames;
+    private final Map<String, String> lemmas = new HashMap<String, String>();
+
+    public SyntheticCorpus(boolean german, long seed) {
+        this.german = german;
+        this.random = new Random(seed);
+        this.frames = german ? FRAMES_DE : FRAMES_EN;
+        for (String[] frame : frames) {
+            lemmas.put(frame[0], frame[1]);
+        }
+    }
+
+    public boolean isGerman() {
+        return german;
+    }
+
+    /**
+     * @return the target lemma of a frame of the corpus
+     */
+    public String lemma(String frame) {
+        return lemmas.get(frame);
+    }
+
+    /**
+     * @return a tuple with target span 0/0 and without argument span
+     */
+    public FeatureTuple nextTuple() {
+        String frame = frames[random.nextInt(frames.length)][0];
+        return new FeatureTuple(null, frame, next(DEP_TYPE_EN, DEP_TYPE_DE), next(POS_EN, POS_DE),
+                next(DEP_SEM_FIELD_EN, DEP_SEM_FIELD_DE), next(NE_TAG_EN, NE_TAG_DE),
+                next(GOV_SEM_FIELD_EN, GOV_SEM_FIELD_DE), 0, 0, -1, -1);
+    }
+
+    public FeatureTuple[] tuples(int count) {
+        FeatureTuple[] tuples = new FeatureTuple[count];
+        for (int i = 0; i < count; i++) {
+            tuples[i] = nextTuple();
+        }
+        return tuples;
+    }
+
+    /**
+     * @return a random number in [min, max]
+     */
+    public int nextInt(int min, int max) {
+        return min + random.nextInt(max - min + 1);
+    }
+
+    private String next(Choice english, Choice german) {
+        return (this.german ? german : english).next(random);
+    }
+
+    /**
+     * Weighted choice among values given as "value:weight".
+     */
+    private static class Choice {
+        private final String[] values;
+        private final int[] cumulativeWeights;
+
+        Choice(String... weightedValues) {
+            values = new String[weightedValues.length];
+            cumulativeWeights = new int[weightedValues.length];
+            int total = 0;
+            for (int i = 0; i < weightedValues.length; i++) {
+                int colon = weightedValues[i].lastIndexOf(':');
+                values[i] = weightedValues[i].substring(0, colon);
+                total += Integer.parseInt(weightedValues[i].substring(colon + 1));
+                cumulativeWeights[i] = total;
+            }
+        }
+
+        String next(Random random) {
+            int r = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (r < cumulativeWeights[i]) {
+                    return values[i];
+                }
+            }
+            throw new IllegalStateException();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.benchmarks;
+
+import org.apache.uima.fit.factory.JCasBuilder;
+import org.apache.uima.jcas.JCas;
+
+import de.tudarmstadt.ukp.dkpro.core.api.lexmorph.type.pos.POS;
+import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Lemma;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemanticField;
+import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.constituent.Constituent;
+import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
+import de.tudarmstadt.ukp.dkpro.wsd.type.Sense;
+import de.tudarmstadt.ukp.dkpro.wsd.type.WSDItem;
+import de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.FeatureTuple;
+
+/**
+ * Builds documents with the annotations the role annotators read, from the
+ * tuples of a {@link SyntheticCorpus}: every sentence has one sense-tagged
+ * target verb with two to six dependents, the first one before the verb. The
+ * dependents are NPs, with a determiner for nouns; the semantic fields, named
+ * entities, POS tags and dependency types are those of the tuples.
+ *
+ */
+public class SyntheticDocuments {
+
+    private static final String POS_PACKAGE = POS.class.getPackage().getName() + ".";
+
+    private final SyntheticCorpus corpus;
+    private int senses = 0;
+
+    public SyntheticDocuments(SyntheticCorpus corpus) {
+        this.corpus = corpus;
+    }
+
+    /**
+     * Fill an empty CAS with a document of the given number of sentences.
+     */
+    public void fill(JCas jcas, int sentences) {
+        jcas.setDocumentLanguage(corpus.isGerman() ? "de" : "en");
+        JCasBuilder builder = new JCasBuilder(jcas);
+        for (int s = 0; s < sentences; s++) {
+            FeatureTuple[] arguments = new FeatureTuple[corpus.nextInt(2, 6)];
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = corpus.nextTuple();
+            }
+            // the first tuple gives the target and its semantic field
+            String frame = arguments[0].getFrame();
+            String lemma = corpus.lemma(frame);
+            Token[] dependents = new Token[arguments.length];
+
+            int sentenceBegin = builder.getPosition();
+            dependents[0] = argument(jcas, builder, arguments[0]);
+            builder.add(" ");
+            int vpBegin = builder.getPosition();
+            Token verb = token(jcas, builder, lemma, lemma, "V", arguments[0].getGovSemField());
+            target(jcas, verb, lemma, frame);
+            for (int i = 1; i < arguments.length; i++) {
+                builder.add(" ");
+                dependents[i] = argument(jcas, builder, arguments[i]);
+            }
+            constituent(builder, vpBegin, "VP");
+            builder.add(" ");
+            token(jcas, builder, ".", ".", "PUNC", "UNKNOWN");
+            constituent(builder, sentenceBegin, "S");
+            builder.add(sentenceBegin, Sentence.class);
+            builder.add(" ");
+
+            for (int i = 0; i < arguments.length; i++) {
+                dependency(jcas, verb, dependents[i], arguments[i].getDepType());
+            }
+        }
+        builder.close();
+    }
+
+    private Token argument(JCas jcas, JCasBuilder builder, FeatureTuple tuple) {
+        String pos = tuple.getDependentPos();
+        int begin = builder.getPosition();
+        Token determiner = null;
+        if (pos.equals("NN") || pos.equals("NP")) {
+            String article = corpus.isGerman() ? "die" : "the";
+            determiner = token(jcas, builder, article, article, "ART", "UNKNOWN");
+            builder.add(" ");
+        }
+        String word;
+        if (pos.equals("PR")) {
+            word = corpus.isGerman() ? "es" : "it";
+        } else if (pos.equals("CARD")) {
+            word = "42";
+        } else {
+            word = tuple.getDepSemField().toLowerCase();
+        }
+        Token dependent = token(jcas, builder, word, word, pos, tuple.getDepSemField());
+        if (determiner != null) {
+            dependency(jcas, dependent, determiner, corpus.isGerman() ? "NK" : "det");
+        }
+        if (!tuple.getDepNeTag().equals("notANamedEntity")) {
+            NamedEntity ne = new NamedEntity(jcas, dependent.getBegin(), dependent.getEnd());
+            // the English annotator maps "organization" to "group"
+            ne.setValue(tuple.getDepNeTag().equals("group") ? "ORGANIZATION" : tuple.getDepNeTag().toUpperCase());
+            ne.addToIndexes();
+        }
+        constituent(builder, begin, "NP");
+        return dependent;
+    }
+
+    private Token token(JCas jcas, JCasBuilder builder, String text, String lemmaValue, String posType,
+            String semField) {
+        Token token = builder.add(text, Token.class);
+        Lemma lemma = new Lemma(jcas, token.getBegin(), token.getEnd());
+        lemma.setValue(lemmaValue);
+        lemma.addToIndexes();
+        token.setLemma(lemma);
+        POS pos = (POS) jcas.getCas().createAnnotation(jcas.getTypeSystem().getType(POS_PACKAGE + posType),
+                token.getBegin(), token.getEnd());
+        pos.setPosValue(posType);
+        pos.addToIndexes();
+        token.setPos(pos);
+        SemanticField field = new SemanticField(jcas, token.getBegin(), token.getEnd());
+        field.setValue(semField);
+        field.addToIndexes();
+        return token;
+    }
+
+    private void target(JCas jcas, Token verb, String lemma, String frame) {
+        int id = senses++;
+        WSDItem item = new WSDItem(jcas, verb.getBegin(), verb.getEnd());
+        item.setId(lemma + "#" + id);
+        item.setSubjectOfDisambiguation(lemma);
+        item.setPos("VERB");
+        item.addToIndexes();
+        Sense sense = new Sense(jcas, verb.getBegin(), verb.getEnd());
+        sense.setId(lemma + "#" + id + "%%" + lemma + "%" + frame + "%" + id);
+        sense.addToIndexes();
+    }
+
+    private static void constituent(JCasBuilder builder, int begin, String type) {
+        builder.add(begin, Constituent.class).setConstituentType(type);
+    }
+
+    private static void dependency(JCas jcas, Token governor, Token dependent, String type) {
+        Dependency dependency = new Dependency(jcas, dependent.getBegin(), dependent.getEnd());
+        dependency.setGovernor(governor);
+        dependency.setDependent(dependent);
+        dependency.setDependencyType(type);
+        dependency.addToIndexes();
+    }
+}
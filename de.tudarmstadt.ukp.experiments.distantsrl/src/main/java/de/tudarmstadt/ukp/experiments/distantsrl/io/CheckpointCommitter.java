@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.io;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.Level;
+
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+import de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.CheckpointStatistics;
+import de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.SrlStatistics;
+import de.tudarmstadt.ukp.experiments.distantsrl.utils.CheckpointManifest;
+
+/**
+ * Records each document in the {@link CheckpointManifest} as completed. Runs
+ * after the writer, which has to write one file per document in its
+ * {@code process} call, and with the same manifest as the
+ * {@link PrefetchingXmiReader}, which skips the completed inputs on the next
+ * run.
+ *
+ * With a {@link #PARAM_STATISTICS_LOG}, the counts that the role annotators
+ * recorded for the document (see {@link CheckpointStatistics}) are committed
+ * with it and stored, so an interrupted run keeps exactly the counts of the
+ * documents it completed.
+ *
+ */
+public class CheckpointCommitter extends JCasAnnotator_ImplBase {
+
+    public static final String PARAM_MANIFEST = "manifest";
+    @ConfigurationParameter(name = PARAM_MANIFEST, mandatory = true,
+            description = "Checkpoint manifest shared with the reader")
+    private File manifestFile;
+
+    public static final String PARAM_STATISTICS_LOG = "statisticsLog";
+    @ConfigurationParameter(name = PARAM_STATISTICS_LOG, mandatory = false,
+            description = "SRL log of the role annotators whose statistics are stored with every commit")
+    private File statisticsLog;
+
+    private CheckpointManifest manifest;
+    private CheckpointStatistics statistics;
+
+    @Override
+    public void initialize(UimaContext aContext) throws ResourceInitializationException {
+        super.initialize(aContext);
+        try {
+            manifest = CheckpointManifest.acquire(manifestFile);
+        } catch (IOException e) {
+            throw new ResourceInitializationException(e);
+        }
+        if (statisticsLog != null) {
+            statistics = CheckpointStatistics.acquire(statisticsLog);
+        }
+    }
+
+    @Override
+    public void process(JCas aJCas) throws AnalysisEngineProcessException {
+        try {
+            if (!manifest.commit(aJCas.getCas())) {
+                String documentId = JCasUtil.exists(aJCas, DocumentMetaData.class)
+                        ? DocumentMetaData.get(aJCas).getDocumentId() : null;
+                getLogger().log(Level.WARNING, "Document " + documentId + " not in the checkpoint manifest");
+            }
+            if (statistics != null) {
+                statistics.commit(aJCas.getCas(), SrlStatistics.statsFile(statisticsLog));
+            }
+        } catch (IOException e) {
+            throw new AnalysisEngineProcessException(e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (statistics != null) {
+            statistics.release();
+        }
+        try {
+            long committed = manifest.release();
+            if (committed >= 0) {
+                getLogger().log(Level.INFO, committed + " documents committed to " + manifestFile);
+            }
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Unable to close the checkpoint manifest", e);
+        }
+        super.destroy();
+    }
+}
@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.io;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.uima.UimaContext;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.CASException;
+import org.apache.uima.cas.impl.XmiCasDeserializer;
+import org.apache.uima.collection.CollectionException;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.Level;
+import org.xml.sax.SAXException;
+
+import de.tudarmstadt.ukp.dkpro.core.api.io.ResourceCollectionReaderBase;
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+import de.tudarmstadt.ukp.dkpro.core.api.resources.CompressionUtils;
+import de.tudarmstadt.ukp.experiments.distantsrl.utils.CheckpointManifest;
+
+/**
+ * Reads XMI files like {@code XmiReader}, but decompresses the next files on
+ * background threads while the current one is deserialized and processed.
+ *
+ * Up to {@link #PARAM_READ_AHEAD} files are decompressed ahead of time, by
+ * {@link #PARAM_THREADS} threads, and kept fully inflated in memory. The
+ * compression is detected from the file suffix (.bz2, .gz, .xz), uncompressed
+ * files are read as they are. The files are handed out in the same order as
+ * by the plain reader.
+ *
+ * With a {@link #PARAM_CHECKPOINT_MANIFEST}, the files that an earlier run
+ * completed are skipped without being read, and the file of every document is
+ * announced to the manifest for the {@link CheckpointCommitter}.
+ *
+ */
+public class PrefetchingXmiReader extends ResourceCollectionReaderBase {
+
+    public static final String PARAM_READ_AHEAD = "readAhead";
+    @ConfigurationParameter(name = PARAM_READ_AHEAD, mandatory = false, defaultValue = "8",
+            description = "Number of files that are decompressed ahead of time")
+    private int readAhead;
+
+    public static final String PARAM_THREADS = "threads";
+    @ConfigurationParameter(name = PARAM_THREADS, mandatory = false, defaultValue = "2",
+            description = "Number of decompression threads")
+    private int threads;
+
+    public static final String PARAM_LENIENT = "lenient";
+    @ConfigurationParameter(name = PARAM_LENIENT, mandatory = false, defaultValue = "false",
+            description = "Ignore types that are not in the type system")
+    private boolean lenient;
+
+    public static final String PARAM_CHECKPOINT_MANIFEST = "checkpointManifest";
+    @ConfigurationParameter(name = PARAM_CHECKPOINT_MANIFEST, mandatory = false,
+            description = "Checkpoint manifest of the files completed by earlier runs")
+    private File checkpointManifest;
+
+    private CheckpointManifest manifest;
+    private int skipped = 0;
+
+    private ExecutorService pool;
+    private final Deque<Pending> pending = new ArrayDeque<Pending>();
+
+    @Override
+    public void initialize(UimaContext aContext) throws ResourceInitializationException {
+        super.initialize(aContext);
+        pool = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+            private int count = 0;
+
+            @Override
+            public synchronized Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "xmi-prefetch-" + count++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            if (checkpointManifest != null) {
+                manifest = CheckpointManifest.acquire(checkpointManifest);
+            }
+            prefetch();
+        } catch (Exception e) {
+            throw new ResourceInitializationException(e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() throws IOException, CollectionException {
+        // fills the queue unless all remaining files are skipped
+        prefetch();
+        return !pending.isEmpty();
+    }
+
+    @Override
+    public void getNext(CAS aCAS) throws IOException, CollectionException {
+        prefetch();
+        Pending next = pending.poll();
+        if (next == null) {
+            throw new CollectionException(new IllegalStateException("No more files"));
+        }
+
+        byte[] xmi;
+        try {
+            xmi = next.data.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+        prefetch();
+
+        initCas(aCAS, next.resource);
+        try {
+            XmiCasDeserializer.deserialize(new ByteArrayInputStream(xmi), aCAS, lenient);
+        } catch (SAXException e) {
+            throw new IOException(e);
+        }
+        if (manifest != null) {
+            started(aCAS, next.resource);
+        }
+    }
+
+    /**
+     * Announce the file of the document in the CAS, with the document id of
+     * the XMI, if any.
+     */
+    private void started(CAS aCAS, Resource res) throws CollectionException {
+        JCas jcas;
+        try {
+            jcas = aCAS.getJCas();
+        } catch (CASException e) {
+            throw new CollectionException(e);
+        }
+        String documentId = JCasUtil.exists(jcas, DocumentMetaData.class)
+                ? DocumentMetaData.get(jcas).getDocumentId() : null;
+        manifest.started(aCAS, res.getPath(), documentId);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+        pending.clear();
+        if (manifest != null) {
+            getLogger().log(Level.INFO, "Skipped " + skipped + " files completed by earlier runs");
+            long committed = manifest.release();
+            if (committed >= 0) {
+                getLogger().log(Level.INFO, committed + " documents committed to " + checkpointManifest);
+            }
+            manifest = null;
+        }
+        super.close();
+    }
+
+    /**
+     * Queue files for decompression until the read-ahead limit is reached.
+     */
+    private void prefetch() throws IOException, CollectionException {
+        while (pending.size() < Math.max(1, readAhead) && super.hasNext()) {
+            final Resource res = nextFile();
+            if (manifest != null && manifest.isCompleted(res.getPath())) {
+                skipped++;
+                continue;
+            }
+            Future<byte[]> data = pool.submit(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws Exception {
+                    InputStream is = null;
+                    try {
+                        is = CompressionUtils.getInputStream(res.getLocation(),
+                                new BufferedInputStream(res.getInputStream(), 65536));
+                        return IOUtils.toByteArray(is);
+                    } finally {
+                        IOUtils.closeQuietly(is);
+                    }
+                }
+            });
+            pending.add(new Pending(res, data));
+        }
+    }
+
+    private static class Pending {
+        final Resource resource;
+        final Future<byte[]> data;
+
+        Pending(Resource resource, Future<byte[]> data) {
+            this.resource = resource;
+            this.data = data;
+        }
+    }
+}
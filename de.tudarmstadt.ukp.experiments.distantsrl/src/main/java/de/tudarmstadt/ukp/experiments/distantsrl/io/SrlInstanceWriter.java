@@ -0,0 +1,366 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.Level;
+
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemanticArgument;
+import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemanticPredicate;
+
+/**
+ * Streams the role-labeled sentences as training instances, without
+ * serializing the rest of the CAS. Only sentences with at least one labeled
+ * predicate are written, with their tokens (form, lemma, POS) as context.
+ *
+ * All documents go to one part file per writer instance in the target
+ * directory, so parallel workers do not share a stream. Two formats:
+ *
+ * <ul>
+ * <li>conll: CoNLL-2005 like columns, one token per line and a blank line
+ * after each sentence. Each sentence starts with "# docId sentenceBegin". The
+ * columns are id, form, lemma, POS, then one column per predicate with the
+ * frame on the predicate token, followed by one column per predicate with
+ * its arguments in bracket notation, e.g. "(Agent*", "*", "*)".</li>
+ * <li>binary: one length-prefixed record per sentence, see
+ * {@link #writeBinary}.</li>
+ * </ul>
+ *
+ */
+public class SrlInstanceWriter extends JCasAnnotator_ImplBase {
+
+    public static final String FORMAT_CONLL = "conll";
+    public static final String FORMAT_BINARY = "binary";
+
+    public static final String PARAM_TARGET_LOCATION = "targetLocation";
+    @ConfigurationParameter(name = PARAM_TARGET_LOCATION, mandatory = true,
+            description = "Directory for the part files")
+    private File targetLocation;
+
+    public static final String PARAM_FORMAT = "format";
+    @ConfigurationParameter(name = PARAM_FORMAT, mandatory = false, defaultValue = FORMAT_CONLL,
+            description = "Either conll or binary")
+    private String format;
+
+    public static final String PARAM_COMPRESS = "compress";
+    @ConfigurationParameter(name = PARAM_COMPRESS, mandatory = false, defaultValue = "true",
+            description = "Gzip the part files")
+    private boolean compress;
+
+    private static final AtomicInteger PARTS = new AtomicInteger();
+
+    private boolean binary;
+    private OutputStream stream;
+    private Writer text;
+    private DataOutputStream data;
+    private boolean completed = false;
+    private final StringBuilder line = new StringBuilder(256);
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(4096);
+    private final DataOutputStream recordData = new DataOutputStream(record);
+
+    @Override
+    public void initialize(UimaContext aContext) throws ResourceInitializationException {
+        super.initialize(aContext);
+        if (!FORMAT_CONLL.equals(format) && !FORMAT_BINARY.equals(format)) {
+            throw new ResourceInitializationException(new IllegalArgumentException("Unknown format: " + format));
+        }
+        binary = FORMAT_BINARY.equals(format);
+
+        targetLocation.mkdirs();
+        File part = new File(targetLocation, String.format("part-%03d.%s%s", PARTS.getAndIncrement(),
+                binary ? "srlbin" : "conll", compress ? ".gz" : ""));
+        try {
+            stream = new BufferedOutputStream(new FileOutputStream(part), 65536);
+            if (compress) {
+                stream = new GZIPOutputStream(stream, 65536);
+            }
+            if (binary) {
+                data = new DataOutputStream(stream);
+            } else {
+                text = new OutputStreamWriter(stream, "UTF-8");
+            }
+        } catch (IOException e) {
+            IOUtils.closeQuietly(stream);
+            throw new ResourceInitializationException(e);
+        }
+    }
+
+    @Override
+    public void process(JCas aJCas) throws AnalysisEngineProcessException {
+        String docId = documentId(aJCas);
+        Map<Sentence, List<SemanticPredicate>> index = JCasUtil.indexCovered(aJCas, Sentence.class,
+                SemanticPredicate.class);
+        try {
+            for (Sentence sentence : JCasUtil.select(aJCas, Sentence.class)) {
+                List<SemanticPredicate> labeled = index.get(sentence);
+                if (labeled == null || labeled.isEmpty()) {
+                    continue;
+                }
+                List<Token> tokens = JCasUtil.selectCovered(Token.class, sentence);
+                List<Predicate> predicates = group(tokens, labeled);
+                if (binary) {
+                    writeBinary(docId, sentence, tokens, predicates);
+                } else {
+                    writeConll(docId, sentence, tokens, predicates);
+                }
+            }
+        } catch (IOException e) {
+            throw new AnalysisEngineProcessException(e);
+        }
+    }
+
+    @Override
+    public void collectionProcessComplete() throws AnalysisEngineProcessException {
+        completed = true;
+        try {
+            close();
+        } catch (IOException e) {
+            throw new AnalysisEngineProcessException(e);
+        }
+    }
+
+    /**
+     * A failed run does not complete the collection. Close the part file
+     * anyway, so that the instances written so far are flushed and a gzipped
+     * part stays readable.
+     */
+    @Override
+    public void destroy() {
+        if (!completed && stream != null) {
+            completed = true;
+            try {
+                close();
+            } catch (IOException e) {
+                getLogger().log(Level.WARNING, "Could not close the part file in " + targetLocation, e);
+            }
+        }
+        super.destroy();
+    }
+
+    private void close() throws IOException {
+        try {
+            if (binary) {
+                data.close();
+            } else {
+                text.close();
+            }
+        } finally {
+            IOUtils.closeQuietly(stream);
+        }
+    }
+
+    private void writeConll(String docId, Sentence sentence, List<Token> tokens, List<Predicate> predicates)
+        throws IOException {
+        String[][] roles = new String[predicates.size()][];
+        for (int p = 0; p < predicates.size(); p++) {
+            roles[p] = bracketRoles(tokens, predicates.get(p));
+        }
+
+        line.setLength(0);
+        line.append("# ").append(docId).append(' ').append(sentence.getBegin()).append('\n');
+        for (int t = 0; t < tokens.size(); t++) {
+            Token token = tokens.get(t);
+            line.append(t + 1).append('\t');
+            SrlWriter.appendText(line, token.getCoveredText());
+            line.append('\t').append(lemma(token)).append('\t').append(pos(token));
+            for (int p = 0; p < predicates.size(); p++) {
+                Predicate pred = predicates.get(p);
+                line.append('\t').append(pred.token == t ? pred.frame : "-");
+            }
+            for (int p = 0; p < predicates.size(); p++) {
+                line.append('\t').append(roles[p][t]);
+            }
+            line.append('\n');
+        }
+        line.append('\n');
+        text.append(line);
+    }
+
+    /**
+     * Binary record layout, all integers big-endian and strings as modified
+     * UTF-8 ({@link DataOutputStream#writeUTF}):
+     *
+     * <pre>
+     * int recordLength
+     * UTF docId, int sentenceBegin
+     * int tokenCount, tokenCount x (UTF form, UTF lemma, UTF pos)
+     * int predicateCount, predicateCount x (int token, UTF frame, int argumentCount,
+     *     argumentCount x (int firstToken, int lastToken, UTF role))
+     * </pre>
+     *
+     * Token indexes are 0-based within the sentence.
+     */
+    private void writeBinary(String docId, Sentence sentence, List<Token> tokens, List<Predicate> predicates)
+        throws IOException {
+        record.reset();
+        recordData.writeUTF(docId);
+        recordData.writeInt(sentence.getBegin());
+        recordData.writeInt(tokens.size());
+        for (Token token : tokens) {
+            recordData.writeUTF(token.getCoveredText());
+            recordData.writeUTF(lemma(token));
+            recordData.writeUTF(pos(token));
+        }
+        recordData.writeInt(predicates.size());
+        for (Predicate pred : predicates) {
+            recordData.writeInt(pred.token);
+            recordData.writeUTF(pred.frame);
+            recordData.writeInt(pred.arguments.size());
+            for (SemanticArgument arg : pred.arguments) {
+                recordData.writeInt(firstToken(tokens, arg.getBegin()));
+                recordData.writeInt(lastToken(tokens, arg.getEnd()));
+                recordData.writeUTF(String.valueOf(arg.getRole()));
+            }
+        }
+        recordData.flush();
+        data.writeInt(record.size());
+        record.writeTo(data);
+    }
+
+    /**
+     * The role annotators add one predicate per argument; group them by span
+     * and frame so that every predicate gets one column.
+     */
+    private static List<Predicate> group(List<Token> tokens, List<SemanticPredicate> labeled) {
+        Map<String, Predicate> byKey = new LinkedHashMap<String, Predicate>();
+        for (SemanticPredicate semPred : labeled) {
+            String frame = String.valueOf(semPred.getCategory());
+            String key = semPred.getBegin() + ":" + semPred.getEnd() + ":" + frame;
+            Predicate pred = byKey.get(key);
+            if (pred == null) {
+                pred = new Predicate(firstToken(tokens, semPred.getBegin()), frame);
+                byKey.put(key, pred);
+            }
+            if (semPred.getArguments() != null) {
+                for (int i = 0; i < semPred.getArguments().size(); i++) {
+                    pred.arguments.add(semPred.getArguments(i));
+                }
+            }
+        }
+        return new ArrayList<Predicate>(byKey.values());
+    }
+
+    private static String[] bracketRoles(List<Token> tokens, Predicate pred) {
+        String[] roles = new String[tokens.size()];
+        for (int t = 0; t < roles.length; t++) {
+            roles[t] = "*";
+        }
+        // tokens covered by an argument already written, also the inner ones
+        boolean[] occupied = new boolean[tokens.size()];
+        for (SemanticArgument arg : pred.arguments) {
+            int first = firstToken(tokens, arg.getBegin());
+            int last = lastToken(tokens, arg.getEnd());
+            if (first < 0 || last < first || overlaps(occupied, first, last)) {
+                // outside the sentence or overlapping an argument already written
+                continue;
+            }
+            for (int t = first; t <= last; t++) {
+                occupied[t] = true;
+            }
+            if (first == last) {
+                roles[first] = "(" + arg.getRole() + "*)";
+            } else {
+                roles[first] = "(" + arg.getRole() + "*";
+                roles[last] = "*)";
+            }
+        }
+        return roles;
+    }
+
+    private static boolean overlaps(boolean[] occupied, int first, int last) {
+        for (int t = first; t <= last; t++) {
+            if (occupied[t]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int firstToken(List<Token> tokens, int begin) {
+        for (int t = 0; t < tokens.size(); t++) {
+            if (tokens.get(t).getBegin() >= begin) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastToken(List<Token> tokens, int end) {
+        for (int t = tokens.size() - 1; t >= 0; t--) {
+            if (tokens.get(t).getEnd() <= end) {
+                return t;
+            }
+        }
+        return -1;
+    }
+
+    private static String lemma(Token token) {
+        return token.getLemma() == null || token.getLemma().getValue() == null ? "_"
+                : token.getLemma().getValue();
+    }
+
+    private static String pos(Token token) {
+        return token.getPos() == null || token.getPos().getPosValue() == null ? "_"
+                : token.getPos().getPosValue();
+    }
+
+    private static String documentId(JCas aJCas) {
+        if (!JCasUtil.exists(aJCas, DocumentMetaData.class)) {
+            return "_";
+        }
+        DocumentMetaData meta = DocumentMetaData.get(aJCas);
+        return meta.getDocumentId() == null ? "_" : meta.getDocumentId();
+    }
+
+    private static class Predicate {
+        final int token;
+        final String frame;
+        final List<SemanticArgument> arguments = new ArrayList<SemanticArgument>();
+
+        Predicate(int token, String frame) {
+            this.token = token;
+            this.frame = frame;
+        }
+    }
+}
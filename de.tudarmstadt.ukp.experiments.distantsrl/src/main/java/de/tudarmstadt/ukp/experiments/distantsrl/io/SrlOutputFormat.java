@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.io;
+
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
+
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.resource.ResourceInitializationException;
+
+import de.tudarmstadt.ukp.dkpro.core.api.resources.CompressionMethod;
+import de.tudarmstadt.ukp.dkpro.core.io.bincas.BinaryCasWriter;
+import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiWriter;
+
+/**
+ * Output formats of the SRL pipelines.
+ *
+ * <ul>
+ * <li>XMI_BZIP2: full CAS as bzip2 compressed XMI, the original output</li>
+ * <li>XMI_GZIP: full CAS as gzip compressed XMI, much faster to write, a bit
+ * larger</li>
+ * <li>BINARY: full CAS in UIMA compressed binary form 6, which embeds the type
+ * system; read it with the BinaryCasReader</li>
+ * <li>SRL: only the predicates and arguments, see {@link SrlWriter}</li>
+ * <li>CONLL: labeled sentences with token context as CoNLL-like columns,
+ * streamed into one part file per writer, see {@link SrlInstanceWriter}</li>
+ * <li>CONLL_BINARY: the same as length-prefixed binary records</li>
+ * </ul>
+ *
+ */
+public enum SrlOutputFormat {
+
+    XMI_BZIP2, XMI_GZIP, BINARY, SRL, CONLL, CONLL_BINARY;
+
+    /**
+     * @return whether the writer writes each document completely in its
+     *         {@code process} call, as a {@link CheckpointCommitter} after it
+     *         requires
+     */
+    public boolean isPerDocument() {
+        return this != CONLL && this != CONLL_BINARY;
+    }
+
+    /**
+     * @return the writer for this format, writing one file per document with
+     *         the document id as name, or for CONLL and CONLL_BINARY one file
+     *         per writer instance
+     */
+    public AnalysisEngineDescription createWriterDescription(String targetLocation)
+        throws ResourceInitializationException {
+        switch (this) {
+        case XMI_GZIP:
+            return createEngineDescription(XmiWriter.class,
+                    XmiWriter.PARAM_TARGET_LOCATION, targetLocation,
+                    XmiWriter.PARAM_USE_DOCUMENT_ID, true,
+                    XmiWriter.PARAM_ESCAPE_DOCUMENT_ID, false,
+                    XmiWriter.PARAM_COMPRESSION, CompressionMethod.GZIP);
+        case BINARY:
+            return createEngineDescription(BinaryCasWriter.class,
+                    BinaryCasWriter.PARAM_TARGET_LOCATION, targetLocation,
+                    BinaryCasWriter.PARAM_USE_DOCUMENT_ID, true,
+                    BinaryCasWriter.PARAM_ESCAPE_DOCUMENT_ID, false,
+                    BinaryCasWriter.PARAM_FORMAT, "6+");
+        case SRL:
+            return createEngineDescription(SrlWriter.class,
+                    SrlWriter.PARAM_TARGET_LOCATION, targetLocation,
+                    SrlWriter.PARAM_USE_DOCUMENT_ID, true,
+                    SrlWriter.PARAM_ESCAPE_DOCUMENT_ID, false,
+                    SrlWriter.PARAM_COMPRESSION, CompressionMethod.GZIP);
+        case CONLL:
+            return createEngineDescription(SrlInstanceWriter.class,
+                    SrlInstanceWriter.PARAM_TARGET_LOCATION, targetLocation,
+                    SrlInstanceWriter.PARAM_FORMAT, SrlInstanceWriter.FORMAT_CONLL);
+        case CONLL_BINARY:
+            return createEngineDescription(SrlInstanceWriter.class,
+                    SrlInstanceWriter.PARAM_TARGET_LOCATION, targetLocation,
+                    SrlInstanceWriter.PARAM_FORMAT, SrlInstanceWriter.FORMAT_BINARY);
+        case XMI_BZIP2:
+        default:
+            return createEngineDescription(XmiWriter.class,
+                    XmiWriter.PARAM_TARGET_LOCATION, targetLocation,
+                    XmiWriter.PARAM_USE_DOCUMENT_ID, true,
+                    XmiWriter.PARAM_ESCAPE_DOCUMENT_ID, false,
+                    XmiWriter.PARAM_COMPRESSION, CompressionMethod.BZIP2);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.io;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+
+import de.tudarmstadt.ukp.dkpro.core.api.io.JCasFileWriter_ImplBase;
+import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemanticArgument;
+import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemanticPredicate;
+
+/**
+ * Writes only the predicates and arguments labeled by the role annotators, one
+ * tab separated line per predicate and argument:
+ *
+ * <pre>
+ * predicateBegin predicateEnd frame predicateText argumentBegin argumentEnd role argumentText
+ * </pre>
+ *
+ * Offsets refer to the document text. Line breaks and tabs in covered text are
+ * replaced by spaces.
+ *
+ */
+public class SrlWriter extends JCasFileWriter_ImplBase {
+
+    public static final String EXTENSION = ".srl";
+
+    @Override
+    public void process(JCas aJCas) throws AnalysisEngineProcessException {
+        Writer out = null;
+        try {
+            out = new BufferedWriter(new OutputStreamWriter(getOutputStream(aJCas, EXTENSION), "UTF-8"));
+            StringBuilder line = new StringBuilder(256);
+            for (SemanticPredicate pred : JCasUtil.select(aJCas, SemanticPredicate.class)) {
+                if (pred.getArguments() == null) {
+                    continue;
+                }
+                for (int i = 0; i < pred.getArguments().size(); i++) {
+                    SemanticArgument arg = pred.getArguments(i);
+                    line.setLength(0);
+                    line.append(pred.getBegin()).append('\t').append(pred.getEnd()).append('\t')
+                            .append(pred.getCategory()).append('\t');
+                    appendText(line, pred.getCoveredText());
+                    line.append('\t').append(arg.getBegin()).append('\t').append(arg.getEnd()).append('\t')
+                            .append(arg.getRole()).append('\t');
+                    appendText(line, arg.getCoveredText());
+                    line.append('\n');
+                    out.append(line);
+                }
+            }
+            out.close();
+        } catch (IOException e) {
+            throw new AnalysisEngineProcessException(e);
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    static void appendText(StringBuilder line, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            line.append(c == '\t' || c == '\n' || c == '\r' ? ' ' : c);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.resource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.uima.fit.component.Resource_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.descriptor.ExternalResource;
+import org.apache.uima.resource.ResourceAccessException;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.ResourceSpecifier;
+import org.apache.uima.util.Level;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.experiments.distantsrl.utils.PipelineMetrics;
+import de.tudarmstadt.ukp.uby.resource.SemanticTagProvider;
+
+/**
+ * Caches the semantic fields of another {@link SemanticTagProvider}, usually a
+ * {@code UbySemanticFieldResource}, so that the UBY database is only queried
+ * once per (language, lemma, POS).
+ *
+ * The first tier is a bounded LRU map in memory. The optional second tier is
+ * an H2 table ({@link #PARAM_DISK_CACHE_URL}) that survives the run and can be
+ * shared by later runs. Tokens without a semantic field are cached as well.
+ * The hit and miss counts are logged when the resource is destroyed.
+ *
+ * <pre>
+ * createExternalResourceDescription(CachingSemanticFieldResource.class,
+ *         CachingSemanticFieldResource.PARAM_LANGUAGE, "en",
+ *         CachingSemanticFieldResource.RES_DELEGATE,
+ *         createExternalResourceDescription(UbySemanticFieldResource.class, ...))
+ * </pre>
+ *
+ */
+public class CachingSemanticFieldResource extends Resource_ImplBase implements SemanticTagProvider {
+
+    public static final String RES_DELEGATE = "delegate";
+    @ExternalResource(key = RES_DELEGATE)
+    private SemanticTagProvider delegate;
+
+    public static final String PARAM_LANGUAGE = "language";
+    @ConfigurationParameter(name = PARAM_LANGUAGE, mandatory = true,
+            description = "Language of the delegate, part of the cache key")
+    private String language;
+
+    public static final String PARAM_CACHE_SIZE = "cacheSize";
+    @ConfigurationParameter(name = PARAM_CACHE_SIZE, mandatory = false, defaultValue = "100000",
+            description = "Maximum number of entries kept in memory")
+    private int cacheSize;
+
+    public static final String PARAM_DISK_CACHE_URL = "diskCacheUrl";
+    @ConfigurationParameter(name = PARAM_DISK_CACHE_URL, mandatory = false,
+            description = "JDBC URL of an H2 database for the persistent tier, e.g. jdbc:h2:file:semfieldCache; "
+                    + "no persistent tier if empty")
+    private String diskCacheUrl;
+
+    // stands for "no semantic field" in both tiers
+    private static final String NONE = "";
+
+    static final String TABLE = "SEMANTIC_FIELD_CACHE";
+
+    private Map<String, String> memory;
+    private Connection disk;
+    private PreparedStatement diskSelect;
+    private PreparedStatement diskInsert;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Override
+    public boolean initialize(ResourceSpecifier aSpecifier, Map<String, Object> aAdditionalParams)
+        throws ResourceInitializationException {
+        if (!super.initialize(aSpecifier, aAdditionalParams)) {
+            return false;
+        }
+        final int maxEntries = Math.max(1, cacheSize);
+        memory = new LinkedHashMap<String, String>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        if (diskCacheUrl != null && !diskCacheUrl.isEmpty()) {
+            try {
+                Class.forName("org.h2.Driver");
+                disk = DriverManager.getConnection(diskCacheUrl);
+                Statement create = disk.createStatement();
+                try {
+                    create.execute("CREATE TABLE IF NOT EXISTS " + TABLE
+                            + " (CACHE_KEY VARCHAR PRIMARY KEY, TAG VARCHAR NOT NULL)");
+                } finally {
+                    create.close();
+                }
+                diskSelect = disk.prepareStatement("SELECT TAG FROM " + TABLE + " WHERE CACHE_KEY = ?");
+                diskInsert = disk.prepareStatement("MERGE INTO " + TABLE + " (CACHE_KEY, TAG) VALUES (?, ?)");
+            } catch (ClassNotFoundException e) {
+                throw new ResourceInitializationException(e);
+            } catch (SQLException e) {
+                throw new ResourceInitializationException(e);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized String getSemanticTag(Token token) throws ResourceAccessException {
+        String key = key(token);
+        String tag = memory.get(key);
+        if (tag != null) {
+            memoryHits.incrementAndGet();
+            return tag == NONE ? null : tag;
+        }
+
+        tag = readDisk(key);
+        if (tag != null) {
+            diskHits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            PipelineMetrics.counter(PipelineMetrics.UBY_QUERIES).incrementAndGet();
+            tag = delegate.getSemanticTag(token);
+            tag = tag == null ? NONE : tag;
+            writeDisk(key, tag);
+        }
+        if (tag.isEmpty()) {
+            tag = NONE;
+        }
+        memory.put(key, tag);
+        return tag == NONE ? null : tag;
+    }
+
+    /**
+     * Multi-word lookups are rare and passed through uncached.
+     */
+    public String getSemanticTag(List<Token> tokens) throws ResourceAccessException {
+        if (tokens.size() == 1) {
+            return getSemanticTag(tokens.get(0));
+        }
+        misses.incrementAndGet();
+        PipelineMetrics.counter(PipelineMetrics.UBY_QUERIES).incrementAndGet();
+        return delegate.getSemanticTag(tokens);
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    /**
+     * @return the number of lookups that were passed to the delegate
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public void destroy() {
+        long total = memoryHits.get() + diskHits.get() + misses.get();
+        getLogger().log(Level.INFO, "Semantic field cache (" + language + "): " + total + " lookups, "
+                + memoryHits.get() + " memory hits, " + diskHits.get() + " disk hits, " + misses.get()
+                + " misses");
+        if (disk != null) {
+            try {
+                disk.close();
+            } catch (SQLException e) {
+                getLogger().log(Level.WARNING, "Unable to close the semantic field disk cache", e);
+            }
+        }
+        super.destroy();
+    }
+
+    private String key(Token token) {
+        return language + "\t" + lookupKey(token);
+    }
+
+    /**
+     * @return "lemma TAB posType/posValue", the part of the cache key that
+     *         depends on the token; also the key of a
+     *         {@link SemanticFieldDictionary}
+     */
+    static String lookupKey(Token token) {
+        String lemma = token.getLemma() == null ? token.getCoveredText() : token.getLemma().getValue();
+        String pos = token.getPos() == null ? "" : token.getPos().getType().getShortName() + "/"
+                + token.getPos().getPosValue();
+        return lemma + "\t" + pos;
+    }
+
+    private String readDisk(String key) throws ResourceAccessException {
+        if (disk == null) {
+            return null;
+        }
+        try {
+            diskSelect.setString(1, key);
+            ResultSet result = diskSelect.executeQuery();
+            try {
+                return result.next() ? result.getString(1) : null;
+            } finally {
+                result.close();
+            }
+        } catch (SQLException e) {
+            throw new ResourceAccessException(e);
+        }
+    }
+
+    private void writeDisk(String key, String tag) throws ResourceAccessException {
+        if (disk == null) {
+            return;
+        }
+        try {
+            diskInsert.setString(1, key);
+            diskInsert.setString(2, tag);
+            diskInsert.executeUpdate();
+        } catch (SQLException e) {
+            throw new ResourceAccessException(e);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.resource;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Read-only lemma/POS to semantic field dictionary in a memory-mapped file.
+ *
+ * Layout, all integers big-endian and strings UTF-8 with a short length:
+ *
+ * <pre>
+ * int magic, int tagCount, int entryCount
+ * tagCount x string tag
+ * entryCount x int entryPosition
+ * entryCount x (string key, short tagIndex)
+ * </pre>
+ *
+ * The entries are sorted by the bytes of their keys, a lookup is a binary
+ * search over the entry positions. A tag index of -1 means that the key is
+ * known but has no semantic field.
+ *
+ */
+public class SemanticFieldDictionary {
+
+    private static final int MAGIC = 0x53464431;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;
+    private final String[] tags;
+    private final int entryCount;
+    private final int positions;
+
+    private SemanticFieldDictionary(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a semantic field dictionary");
+        }
+        tags = new String[buffer.getInt(4)];
+        entryCount = buffer.getInt(8);
+        int pos = 12;
+        for (int i = 0; i < tags.length; i++) {
+            int length = buffer.getShort(pos) & 0xffff;
+            tags[i] = decode(pos + 2, length);
+            pos += 2 + length;
+        }
+        positions = pos;
+    }
+
+    public static SemanticFieldDictionary open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            return new SemanticFieldDictionary(buffer);
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * @return the number of keys, with or without semantic field
+     */
+    public int size() {
+        return entryCount;
+    }
+
+    public boolean contains(String key) {
+        return find(key.getBytes(UTF8)) >= 0;
+    }
+
+    /**
+     * @return the semantic field, or null if the key has none or is unknown
+     */
+    public String lookup(String key) {
+        int entry = find(key.getBytes(UTF8));
+        if (entry < 0) {
+            return null;
+        }
+        int keyLength = buffer.getShort(entry) & 0xffff;
+        short tag = buffer.getShort(entry + 2 + keyLength);
+        return tag < 0 ? null : tags[tag];
+    }
+
+    /**
+     * @return the position of the entry with the given key, or -1
+     */
+    private int find(byte[] key) {
+        int low = 0;
+        int high = entryCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = buffer.getInt(positions + 4 * mid);
+            int cmp = compare(entry + 2, buffer.getShort(entry) & 0xffff, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return entry;
+            }
+        }
+        return -1;
+    }
+
+    private int compare(int pos, int length, byte[] key) {
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int a = buffer.get(pos + i) & 0xff;
+            int b = key[i] & 0xff;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return length - key.length;
+    }
+
+    private String decode(int pos, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(pos + i);
+        }
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Write a dictionary file. Null or empty values are stored as "no semantic
+     * field".
+     */
+    public static void write(File file, Map<String, String> entries) throws IOException {
+        List<byte[]> keys = new ArrayList<byte[]>(entries.size());
+        Map<byte[], String> values = new HashMap<byte[], String>();
+        for (Map.Entry<String, String> e : entries.entrySet()) {
+            byte[] key = e.getKey().getBytes(UTF8);
+            checkLength(key);
+            keys.add(key);
+            values.put(key, e.getValue());
+        }
+        Collections.sort(keys, new Comparator<byte[]>() {
+            @Override
+            public int compare(byte[] a, byte[] b) {
+                int n = Math.min(a.length, b.length);
+                for (int i = 0; i < n; i++) {
+                    int cmp = (a[i] & 0xff) - (b[i] & 0xff);
+                    if (cmp != 0) {
+                        return cmp;
+                    }
+                }
+                return a.length - b.length;
+            }
+        });
+
+        List<String> tags = new ArrayList<String>();
+        Map<String, Short> tagIndex = new HashMap<String, Short>();
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream headerData = new DataOutputStream(header);
+        for (String value : values.values()) {
+            if (value != null && !value.isEmpty() && !tagIndex.containsKey(value)) {
+                tagIndex.put(value, (short) tags.size());
+                tags.add(value);
+            }
+        }
+        if (tags.size() > Short.MAX_VALUE) {
+            throw new IOException("Too many distinct semantic fields: " + tags.size());
+        }
+        headerData.writeInt(MAGIC);
+        headerData.writeInt(tags.size());
+        headerData.writeInt(keys.size());
+        for (String tag : tags) {
+            byte[] bytes = tag.getBytes(UTF8);
+            checkLength(bytes);
+            headerData.writeShort(bytes.length);
+            headerData.write(bytes);
+        }
+        headerData.flush();
+
+        int entryStart = header.size() + 4 * keys.size();
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 65536));
+            header.writeTo(out);
+            int pos = entryStart;
+            for (byte[] key : keys) {
+                out.writeInt(pos);
+                pos += 2 + key.length + 2;
+            }
+            for (byte[] key : keys) {
+                String value = values.get(key);
+                Short tag = value == null ? null : tagIndex.get(value);
+                out.writeShort(key.length);
+                out.write(key);
+                out.writeShort(tag == null ? -1 : tag);
+            }
+            out.close();
+        } finally {
+            IOUtils.closeQuietly(out);
+        }
+    }
+
+    private static void checkLength(byte[] bytes) throws IOException {
+        if (bytes.length > 0xffff) {
+            throw new IOException("Entry too long: " + bytes.length + " bytes");
+        }
+    }
+}
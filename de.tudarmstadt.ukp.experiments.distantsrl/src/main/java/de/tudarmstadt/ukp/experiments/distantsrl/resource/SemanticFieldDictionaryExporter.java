@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.resource;
+
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
+import static org.apache.uima.fit.factory.CollectionReaderFactory.createReaderDescription;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.fit.pipeline.SimplePipeline;
+
+import de.tudarmstadt.ukp.dkpro.core.api.io.ResourceCollectionReaderBase;
+import de.tudarmstadt.ukp.dkpro.core.tokit.GermanSeparatedParticleAnnotator;
+import de.tudarmstadt.ukp.experiments.distantsrl.io.PrefetchingXmiReader;
+import de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.FrameNetSrlPipeline;
+import de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.FrameNetSrlPipelineGerman;
+
+/**
+ * Exports the semantic field lookups of a {@link CachingSemanticFieldResource}
+ * disk cache into a {@link SemanticFieldDictionary} file, so that later runs
+ * need no UBY database.
+ *
+ * <pre>
+ * SemanticFieldDictionaryExporter &lt;en|de&gt; cacheUrl dictionaryFile [sourceLocation]
+ * </pre>
+ *
+ * The cache is filled by any pipeline run with -Dsrl.semanticFieldCache=cacheUrl.
+ * With a source location, the exporter fills it first by running only the
+ * semantic field stage of the pipeline over the *.xmi.bz2 files there. The
+ * dictionary covers the lemma/POS pairs of the corpora seen so far. A run over
+ * another corpus fails at the first pair that is missing, unless it looks such
+ * pairs up in UBY with -Dsrl.semanticFieldFallback=true.
+ *
+ */
+public class SemanticFieldDictionaryExporter {
+
+    public static void main(String[] args) throws UIMAException, IOException, SQLException {
+        if (args.length != 3 && args.length != 4) {
+            System.err.println("Usage: SemanticFieldDictionaryExporter <en|de> cacheUrl dictionaryFile [sourceLocation]");
+            System.exit(2);
+        }
+        String language = args[0];
+        String cacheUrl = args[1];
+        if (args.length == 4) {
+            fillCache(language, cacheUrl, args[3]);
+        }
+        int size = export(language, cacheUrl, new File(args[2]));
+        System.out.println("Wrote " + size + " entries to " + args[2]);
+    }
+
+    /**
+     * Look up the semantic fields of all tokens of the source location in UBY,
+     * storing them in the disk cache.
+     */
+    public static void fillCache(String language, String cacheUrl, String sourceLocation)
+        throws UIMAException, IOException {
+        CollectionReaderDescription reader = createReaderDescription(
+                PrefetchingXmiReader.class,
+                ResourceCollectionReaderBase.PARAM_SOURCE_LOCATION, sourceLocation,
+                ResourceCollectionReaderBase.PARAM_PATTERNS, new String[] { "*.xmi.bz2" });
+        if (language.equals("de")) {
+            FrameNetSrlPipelineGerman.semanticFieldCacheUrl = cacheUrl;
+            FrameNetSrlPipelineGerman.semanticFieldDictionary = "";
+            // the German pipeline looks up the lemmas with the separated particles attached
+            AnalysisEngineDescription particles = createEngineDescription(GermanSeparatedParticleAnnotator.class);
+            SimplePipeline.runPipeline(reader, particles, FrameNetSrlPipelineGerman.createSemanticFieldAnnotator());
+        } else {
+            FrameNetSrlPipeline.semanticFieldCacheUrl = cacheUrl;
+            FrameNetSrlPipeline.semanticFieldDictionary = "";
+            SimplePipeline.runPipeline(reader, FrameNetSrlPipeline.createSemanticFieldAnnotator());
+        }
+    }
+
+    /**
+     * Write all cache entries of the language to the dictionary file.
+     *
+     * @return the number of entries written
+     */
+    public static int export(String language, String cacheUrl, File dictionaryFile)
+        throws IOException, SQLException {
+        String prefix = language + "\t";
+        Map<String, String> entries = new HashMap<String, String>();
+        try {
+            Class.forName("org.h2.Driver");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException(e);
+        }
+        Connection connection = DriverManager.getConnection(cacheUrl);
+        try {
+            PreparedStatement select = connection.prepareStatement("SELECT CACHE_KEY, TAG FROM "
+                    + CachingSemanticFieldResource.TABLE + " WHERE CACHE_KEY LIKE ?");
+            select.setString(1, prefix + "%");
+            ResultSet result = select.executeQuery();
+            while (result.next()) {
+                String key = result.getString(1);
+                if (key.startsWith(prefix)) {
+                    entries.put(key.substring(prefix.length()), result.getString(2));
+                }
+            }
+            result.close();
+            select.close();
+        } finally {
+            connection.close();
+        }
+        SemanticFieldDictionary.write(dictionaryFile, entries);
+        return entries.size();
+    }
+}
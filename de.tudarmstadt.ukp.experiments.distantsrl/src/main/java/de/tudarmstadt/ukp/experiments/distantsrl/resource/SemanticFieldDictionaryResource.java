@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.uima.fit.component.Resource_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.descriptor.ExternalResource;
+import org.apache.uima.resource.ResourceAccessException;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.resource.ResourceSpecifier;
+import org.apache.uima.util.Level;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.uby.resource.SemanticTagProvider;
+
+/**
+ * Drop-in replacement for {@code UbySemanticFieldResource} that answers from a
+ * {@link SemanticFieldDictionary} file instead of the UBY database. Use it as
+ * the semantic field resource of the {@code UbySemanticFieldAnnotator}; the
+ * dictionary is created with {@link SemanticFieldDictionaryExporter}.
+ *
+ * A token whose lemma/POS is not in the dictionary is an error, since the
+ * dictionary only covers the corpora it was exported from and a missing entry
+ * would silently look like a token without semantic field. With a
+ * {@link #RES_DELEGATE}, e.g. the UBY resource, such tokens are looked up
+ * there instead; their number is logged when the resource is destroyed.
+ *
+ */
+public class SemanticFieldDictionaryResource extends Resource_ImplBase implements SemanticTagProvider {
+
+    public static final String PARAM_DICTIONARY_LOCATION = "dictionaryLocation";
+    @ConfigurationParameter(name = PARAM_DICTIONARY_LOCATION, mandatory = true,
+            description = "Dictionary file written by the SemanticFieldDictionaryExporter")
+    private File dictionaryLocation;
+
+    public static final String RES_DELEGATE = "delegate";
+    @ExternalResource(key = RES_DELEGATE, mandatory = false)
+    private SemanticTagProvider delegate;
+
+    private SemanticFieldDictionary dictionary;
+    private final AtomicLong unknown = new AtomicLong();
+
+    @Override
+    public boolean initialize(ResourceSpecifier aSpecifier, Map<String, Object> aAdditionalParams)
+        throws ResourceInitializationException {
+        if (!super.initialize(aSpecifier, aAdditionalParams)) {
+            return false;
+        }
+        try {
+            dictionary = SemanticFieldDictionary.open(dictionaryLocation);
+        } catch (IOException e) {
+            throw new ResourceInitializationException(e);
+        }
+        getLogger().log(Level.INFO, "Loaded " + dictionary.size() + " semantic field entries from "
+                + dictionaryLocation);
+        return true;
+    }
+
+    @Override
+    public String getSemanticTag(Token token) throws ResourceAccessException {
+        String key = CachingSemanticFieldResource.lookupKey(token);
+        String tag = dictionary.lookup(key);
+        if (tag == null && !dictionary.contains(key)) {
+            unknown.incrementAndGet();
+            if (delegate == null) {
+                throw new ResourceAccessException(new IllegalStateException("No semantic field entry for \""
+                        + key.replace('\t', ' ') + "\" in " + dictionaryLocation));
+            }
+            tag = delegate.getSemanticTag(token);
+        }
+        return tag;
+    }
+
+    /**
+     * Multi-word expressions are not in the dictionary, only single tokens are
+     * looked up; multi-word expressions go to the delegate, if any.
+     */
+    public String getSemanticTag(List<Token> tokens) throws ResourceAccessException {
+        if (tokens.size() == 1) {
+            return getSemanticTag(tokens.get(0));
+        }
+        return delegate == null ? null : delegate.getSemanticTag(tokens);
+    }
+
+    /**
+     * @return the number of lookups of tokens that are not in the dictionary,
+     *         answered by the delegate
+     */
+    public long getUnknown() {
+        return unknown.get();
+    }
+
+    @Override
+    public void destroy() {
+        if (delegate != null) {
+            getLogger().log(Level.INFO, unknown.get() + " semantic field lookups of tokens not in "
+                    + dictionaryLocation + " passed on to the delegate");
+        }
+        super.destroy();
+    }
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.apache.uima.cas.CAS;
+
+import de.tudarmstadt.ukp.experiments.distantsrl.utils.CheckpointManifest;
+
+/**
+ * The counts of the role annotators for the documents of a checkpointed run
+ * that are committed to the {@link CheckpointManifest}.
+ *
+ * The annotators record the counts of each document under its CAS
+ * ({@link #record}), and the {@code CheckpointCommitter} adds them to the
+ * committed counts once the output of the document is written
+ * ({@link #commit}). Only the committed counts are stored, next to the SRL
+ * log of the run attempt. The documents that are annotated, but not written
+ * when an attempt fails, are processed again by the next attempt and counted
+ * there, so the merged counts of all attempts count every document once.
+ *
+ * The annotators and committers of a parallel run share the counts of their
+ * log file, see {@link #acquire(File)}.
+ *
+ */
+public class CheckpointStatistics {
+
+    private static final Map<String, CheckpointStatistics> SHARED = new HashMap<String, CheckpointStatistics>();
+
+    private final String key;
+    private int users = 0;
+
+    private final Map<CAS, SrlStatistics> uncommitted = new IdentityHashMap<CAS, SrlStatistics>();
+    private final SrlStatistics committed = new SrlStatistics();
+
+    private CheckpointStatistics(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Get the counts of a log file. Every call has to be matched by a
+     * {@link #release()}.
+     */
+    public static CheckpointStatistics acquire(File logFile) {
+        String key = logFile.getAbsolutePath();
+        synchronized (SHARED) {
+            CheckpointStatistics statistics = SHARED.get(key);
+            if (statistics == null) {
+                statistics = new CheckpointStatistics(key);
+                SHARED.put(key, statistics);
+            }
+            statistics.users++;
+            return statistics;
+        }
+    }
+
+    public void release() {
+        synchronized (SHARED) {
+            users--;
+            if (users == 0) {
+                SHARED.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Keep the counts of the annotated document in the CAS until it is
+     * committed.
+     */
+    public synchronized void record(CAS cas, SrlStatistics document) {
+        CAS documentKey = CheckpointManifest.documentKey(cas);
+        SrlStatistics counts = uncommitted.get(documentKey);
+        if (counts == null) {
+            uncommitted.put(documentKey, document);
+        } else {
+            // several annotators label the same document
+            counts.merge(document);
+        }
+    }
+
+    /**
+     * Add the counts of the document in the CAS to the committed counts and
+     * store them.
+     */
+    public synchronized void commit(CAS cas, File statsFile) throws IOException {
+        SrlStatistics document = uncommitted.remove(CheckpointManifest.documentKey(cas));
+        if (document != null) {
+            committed.merge(document);
+        }
+        committed.store(statsFile);
+    }
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
+
+/**
+ * The inputs of the role rules for one dependency of a sense-tagged target:
+ * the arguments of {@code labelDependent}, the FrameNet frame for the SemLink
+ * mapping, and the spans of the target and of the constituent that would get
+ * the role.
+ *
+ * The argument span is -1/-1 if the dependent is not covered by a constituent.
+ *
+ */
+public class FeatureTuple {
+
+    private final String documentId;
+    private final String frame;
+    private final String depType;
+    private final String dependentPos;
+    private final String depSemField;
+    private final String depNeTag;
+    private final String govSemField;
+    private final int predicateBegin;
+    private final int predicateEnd;
+    private final int argumentBegin;
+    private final int argumentEnd;
+
+    public FeatureTuple(String documentId, String frame, String depType, String dependentPos,
+            String depSemField, String depNeTag, String govSemField, int predicateBegin, int predicateEnd,
+            int argumentBegin, int argumentEnd) {
+        this.documentId = documentId;
+        this.frame = frame;
+        this.depType = depType;
+        this.dependentPos = dependentPos;
+        this.depSemField = depSemField;
+        this.depNeTag = depNeTag;
+        this.govSemField = govSemField;
+        this.predicateBegin = predicateBegin;
+        this.predicateEnd = predicateEnd;
+        this.argumentBegin = argumentBegin;
+        this.argumentEnd = argumentEnd;
+    }
+
+    public String getDocumentId() {
+        return documentId;
+    }
+
+    public String getFrame() {
+        return frame;
+    }
+
+    public String getDepType() {
+        return depType;
+    }
+
+    public String getDependentPos() {
+        return dependentPos;
+    }
+
+    public String getDepSemField() {
+        return depSemField;
+    }
+
+    public String getDepNeTag() {
+        return depNeTag;
+    }
+
+    public String getGovSemField() {
+        return govSemField;
+    }
+
+    public int getPredicateBegin() {
+        return predicateBegin;
+    }
+
+    public int getPredicateEnd() {
+        return predicateEnd;
+    }
+
+    public int getArgumentBegin() {
+        return argumentBegin;
+    }
+
+    public int getArgumentEnd() {
+        return argumentEnd;
+    }
+
+    /**
+     * @return true if the dependent is covered by a constituent
+     */
+    public boolean hasArgument() {
+        return argumentBegin >= 0;
+    }
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
+
+import static de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.FeatureTupleWriter.BLOCK_ROWS;
+import static de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.FeatureTupleWriter.INT_COLUMNS;
+import static de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.FeatureTupleWriter.MAGIC;
+import static de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.FeatureTupleWriter.STRING_COLUMNS;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the tuples of a file written by {@link FeatureTupleWriter}, in the
+ * order they were written.
+ *
+ */
+public class FeatureTupleReader implements Closeable {
+
+    private final DataInputStream in;
+    private final List<String> dictionary = new ArrayList<String>();
+    private final int[][] columns = new int[STRING_COLUMNS + INT_COLUMNS][BLOCK_ROWS];
+    private int rows = 0;
+    private int row = 0;
+    private boolean end = false;
+
+    public FeatureTupleReader(File file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file), 65536)));
+        if (in.readInt() != MAGIC) {
+            in.close();
+            throw new IOException("Not a feature tuple file: " + file);
+        }
+    }
+
+    /**
+     * @return the next tuple, or null at the end of the file
+     */
+    public FeatureTuple next() throws IOException {
+        if (row == rows && !readBlock()) {
+            return null;
+        }
+        FeatureTuple tuple = new FeatureTuple(string(0), string(1), string(2), string(3), string(4), string(5),
+                string(6), columns[STRING_COLUMNS][row], columns[STRING_COLUMNS + 1][row],
+                columns[STRING_COLUMNS + 2][row], columns[STRING_COLUMNS + 3][row]);
+        row++;
+        return tuple;
+    }
+
+    private String string(int column) throws IOException {
+        int id = columns[column][row];
+        if (id < -1 || id >= dictionary.size()) {
+            throw new IOException("Invalid string id " + id);
+        }
+        return id == -1 ? null : dictionary.get(id);
+    }
+
+    private boolean readBlock() throws IOException {
+        if (end) {
+            return false;
+        }
+        int blockRows;
+        try {
+            blockRows = in.readInt();
+        } catch (EOFException e) {
+            throw new IOException("Feature tuple file is truncated, the writer was not released", e);
+        }
+        if (blockRows == 0) {
+            end = true;
+            return false;
+        }
+        if (blockRows < 0 || blockRows > BLOCK_ROWS) {
+            throw new IOException("Invalid block size " + blockRows);
+        }
+        int newStrings = in.readInt();
+        for (int i = 0; i < newStrings; i++) {
+            dictionary.add(in.readUTF());
+        }
+        for (int[] column : columns) {
+            for (int i = 0; i < blockRows; i++) {
+                column[i] = in.readInt();
+            }
+        }
+        rows = blockRows;
+        row = 0;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes {@link FeatureTuple}s to a gzipped columnar file, read back by
+ * {@link FeatureTupleReader}.
+ *
+ * The tuples are written in blocks of up to {@link #BLOCK_ROWS} rows. A block
+ * starts with its row count and the strings first used in it, which extend
+ * the string dictionary of the file, followed by one column per field: the
+ * dictionary ids of the string fields (-1 for null) and then the offsets. A
+ * row count of 0 ends the file. The few distinct frames, dependency types,
+ * POS tags and semantic fields make the id columns compress well.
+ *
+ * The role annotator instances of a parallel run that write to the same file
+ * share one writer, see {@link #acquire(File)}.
+ *
+ */
+public class FeatureTupleWriter {
+
+    static final int MAGIC = 0x53465431; // "SFT1"
+    static final int BLOCK_ROWS = 8192;
+    static final int STRING_COLUMNS = 7;
+    static final int INT_COLUMNS = 4;
+
+    private static final Map<String, FeatureTupleWriter> SHARED = new HashMap<String, FeatureTupleWriter>();
+
+    private final String key;
+    private int users = 0;
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> dictionary = new HashMap<String, Integer>();
+    private final List<String> newStrings = new ArrayList<String>();
+    private final int[][] columns = new int[STRING_COLUMNS + INT_COLUMNS][BLOCK_ROWS];
+    private int rows = 0;
+    private long written = 0;
+
+    private FeatureTupleWriter(String key, File file) throws IOException {
+        this.key = key;
+        out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file),
+                65536)));
+        out.writeInt(MAGIC);
+    }
+
+    /**
+     * Get the writer of a file, creating the file if this is its first user.
+     * Every call has to be matched by a {@link #release()}.
+     */
+    public static FeatureTupleWriter acquire(File file) throws IOException {
+        String key = file.getAbsolutePath();
+        synchronized (SHARED) {
+            FeatureTupleWriter writer = SHARED.get(key);
+            if (writer == null) {
+                writer = new FeatureTupleWriter(key, file);
+                SHARED.put(key, writer);
+            }
+            writer.users++;
+            return writer;
+        }
+    }
+
+    /**
+     * Close the file if the caller was the last user.
+     *
+     * @return the number of tuples written if the file was closed, otherwise -1
+     */
+    public long release() throws IOException {
+        synchronized (SHARED) {
+            users--;
+            if (users > 0) {
+                return -1;
+            }
+            SHARED.remove(key);
+        }
+        return close();
+    }
+
+    public synchronized void add(FeatureTuple tuple) throws IOException {
+        int[] strings = { id(tuple.getDocumentId()), id(tuple.getFrame()), id(tuple.getDepType()),
+                id(tuple.getDependentPos()), id(tuple.getDepSemField()), id(tuple.getDepNeTag()),
+                id(tuple.getGovSemField()) };
+        for (int column = 0; column < STRING_COLUMNS; column++) {
+            columns[column][rows] = strings[column];
+        }
+        columns[STRING_COLUMNS][rows] = tuple.getPredicateBegin();
+        columns[STRING_COLUMNS + 1][rows] = tuple.getPredicateEnd();
+        columns[STRING_COLUMNS + 2][rows] = tuple.getArgumentBegin();
+        columns[STRING_COLUMNS + 3][rows] = tuple.getArgumentEnd();
+        rows++;
+        if (rows == BLOCK_ROWS) {
+            writeBlock();
+        }
+    }
+
+    private int id(String value) {
+        if (value == null) {
+            return -1;
+        }
+        Integer id = dictionary.get(value);
+        if (id == null) {
+            id = dictionary.size();
+            dictionary.put(value, id);
+            newStrings.add(value);
+        }
+        return id;
+    }
+
+    private void writeBlock() throws IOException {
+        out.writeInt(rows);
+        out.writeInt(newStrings.size());
+        for (String value : newStrings) {
+            out.writeUTF(value);
+        }
+        for (int[] column : columns) {
+            for (int row = 0; row < rows; row++) {
+                out.writeInt(column[row]);
+            }
+        }
+        written += rows;
+        rows = 0;
+        newStrings.clear();
+    }
+
+    private synchronized long close() throws IOException {
+        try {
+            if (rows > 0) {
+                writeBlock();
+            }
+            out.writeInt(0);
+        } finally {
+            out.close();
+        }
+        return written;
+    }
+}
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable result of mapping a predicted VerbNet role label to the FrameNet
+ * roles of a frame, with all strings the annotators need rendered in advance.
+ *
+ */
+public final class FnRoleResolution {
+
+    public static final String NO_SEMLINK_ENTRY = "noSemlinkEntry";
+
+    private final String vnRoleLabel;
+    private final List<String> vnRoles;
+    private final BitSet fnRoleIds;
+    private final Set<String> fnRoles;
+    private final String fnRoleLabel;
+    private final String mappedLabel;
+
+    FnRoleResolution(String vnRoleLabel, List<String> vnRoles, BitSet fnRoleIds, Set<String> fnRoles,
+            String fnRoleLabel, String mappedLabel) {
+        this.vnRoleLabel = vnRoleLabel;
+        this.vnRoles = vnRoles;
+        this.fnRoleIds = fnRoleIds;
+        this.fnRoles = fnRoles;
+        this.fnRoleLabel = fnRoleLabel;
+        this.mappedLabel = mappedLabel;
+    }
+
+    /**
+     * @return the VerbNet role label as produced by the rules, e.g. "Agent%Co-Agent%Pivot"
+     */
+    public String getVnRoleLabel() {
+        return vnRoleLabel;
+    }
+
+    /**
+     * @return the single VerbNet roles of the label, e.g. [Agent, Co-Agent, Pivot]
+     */
+    public List<String> getVnRoles() {
+        return vnRoles;
+    }
+
+    /**
+     * @return the FrameNet roles SemLink maps the VerbNet roles to in the frame,
+     *         empty if there is no mapping
+     */
+    public Set<String> getFnRoles() {
+        return fnRoles;
+    }
+
+    /**
+     * @return the ids of {@link #getFnRoles()} in the FrameNet role symbol
+     *         table of the SemLink mapping, as a copy
+     */
+    public BitSet getFnRoleIds() {
+        return (BitSet) fnRoleIds.clone();
+    }
+
+    /**
+     * @return the FrameNet role set as written to the CAS and the log, e.g.
+     *         "[Agent, Speaker]", {@link #NO_SEMLINK_ENTRY} if there is no
+     *         mapping, or null for "noRoleLabel"
+     */
+    public String getFnRoleLabel() {
+        return fnRoleLabel;
+    }
+
+    public boolean hasSemlinkEntry() {
+        return !fnRoles.isEmpty();
+    }
+
+    /**
+     * @return the combined label in the form "vnRoleLabel%%fnRoleLabel", or
+     *         just "noRoleLabel"
+     */
+    public String getMappedLabel() {
+        return mappedLabel;
+    }
+
+    @Override
+    public String toString() {
+        return mappedLabel;
+    }
+}
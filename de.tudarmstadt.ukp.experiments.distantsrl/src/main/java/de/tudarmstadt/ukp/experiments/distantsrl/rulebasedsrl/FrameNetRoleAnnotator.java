@@ -17,34 +17,37 @@
  ******************************************************************************/
 package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.descriptor.ExternalResource;
 import org.apache.uima.fit.descriptor.TypeCapability;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.cas.FSArray;
+import org.apache.uima.resource.ResourceAccessException;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.util.Level;
 
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
 import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemanticArgument;
-import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemanticField;
 import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemanticPredicate;
 import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.constituent.Constituent;
 import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
-import de.tudarmstadt.ukp.dkpro.wsd.type.Sense;
-import de.tudarmstadt.ukp.dkpro.wsd.type.WSDItem;
+import de.tudarmstadt.ukp.experiments.distantsrl.utils.SrlLogWriter;
+import de.tudarmstadt.ukp.uby.resource.SemanticTagProvider;
 
 
 /**
@@ -80,28 +83,71 @@ public class FrameNetRoleAnnotator extends JCasAnnotator_ImplBase
     public static final String PARAM_SEMLINK_LOCATION = "mappingLoc";
     @ConfigurationParameter(name = PARAM_SEMLINK_LOCATION, mandatory=true, description="Location of SemLink mappings")
     protected String mappingLoc;
+
+    public static final String PARAM_LOG_FLUSH_RECORDS = "logFlushRecords";
+    @ConfigurationParameter(name = PARAM_LOG_FLUSH_RECORDS, mandatory=false, defaultValue="1000", description="Flush the result file after this many records, 1 flushes every record, 0 disables the limit")
+    protected int logFlushRecords;
+
+    public static final String PARAM_LOG_FLUSH_INTERVAL = "logFlushInterval";
+    @ConfigurationParameter(name = PARAM_LOG_FLUSH_INTERVAL, mandatory=false, defaultValue="10000", description="Flush the result file when this many milliseconds passed since the last flush, 0 disables the limit")
+    protected long logFlushInterval;
+
+    public static final String PARAM_LOG_COMPRESS = "logCompress";
+    @ConfigurationParameter(name = PARAM_LOG_COMPRESS, mandatory=false, defaultValue="false", description="Gzip the result file, .gz is appended to the file name")
+    protected boolean logCompress;
     
-    private Integer allSemArgs = 0; 
-    // all semantic arguments that belong to a verbal predicate, regardless of SemLink mapping
-    
-    private Integer correctlyPredictedRoles = 0; 
-    // predictedRoles that are correct, i.e. there is at least one FN role in the roleset retrieved from Semlink that matches the predicted role
-    
-    private Integer predictedRoles = 0; 
-    // the number of predicted roles for which a SemLink mapping exists, i.e. only those role/frame combinations that can be evaluated
-    
-    private HashSet<String> setOfPredictedRoles = new HashSet<String>();
+    // counted in the shared statistics:
+    // allSemArgs: all semantic arguments that belong to a verbal predicate, regardless of SemLink mapping
+    // correctlyPredictedRoles: predictedRoles that are correct, i.e. there is at least one FN role in the roleset retrieved from Semlink that matches the predicted role
+    // predictedRoles: the number of predicted roles for which a SemLink mapping exists, i.e. only those role/frame combinations that can be evaluated
+
+    public static final String PARAM_TRACE_SAMPLE_RATE = "traceSampleRate";
+    @ConfigurationParameter(name = PARAM_TRACE_SAMPLE_RATE, mandatory=false, defaultValue="1", description="Trace only every n-th sentence when the log level is FINE or finer")
+    protected int traceSampleRate;
+
+    private long sentenceCount = 0;
+
+    public static final String RES_SEMANTIC_FIELD_PROVIDER = "semanticFieldProvider";
+    // if set, the semantic fields of governors and dependents are looked up on demand
+    // instead of read from SemanticField annotations
+    @ExternalResource(key = RES_SEMANTIC_FIELD_PROVIDER, mandatory=false)
+    protected SemanticTagProvider semanticFieldProvider;
+
+    private Map<Token, String> semanticFields = new HashMap<Token, String>();	// provider lookups of the current document
+
+    public static final String PARAM_FEATURE_FILE = "featureFile";
+    @ConfigurationParameter(name = PARAM_FEATURE_FILE, mandatory=false, description="If set, the rule inputs of the dependencies of sense-tagged targets are written to this file, for the RoleRelabeler")
+    protected File featureFile;
+
+    private FeatureTupleWriter featureWriter;	// shared with the other instances of a parallel run
+
+    public static final String PARAM_CHECKPOINT = "checkpoint";
+    @ConfigurationParameter(name = PARAM_CHECKPOINT, mandatory=false, defaultValue="false", description="Keep the counts of each document until the CheckpointCommitter commits it, only the committed counts are stored")
+    protected boolean checkpoint;
+
+    private CheckpointStatistics checkpointStatistics;	// the committed counts of a checkpointed run
 
 
     private RoleInducer roleInducer;
-    private BufferedWriter dataWriter;	// File writer for predicted and gold VerbNet roles
+    private SrlStatistics statistics;	// counts and log file shared with the other instances of a parallel run
+    private SrlLogWriter dataWriter;	// File writer for predicted and gold VerbNet roles
+    private SrlStatistics counts;	// the shared statistics, or the counts of the current document in a checkpointed run
+    private StringBuilder record = new StringBuilder(256);
+    private boolean completed = false;	// collectionProcessComplete ran and released the shared writers
 
     
 	@Override
 	public void initialize(UimaContext context) throws ResourceInitializationException {
 		super.initialize(context);
 		try {
-			dataWriter = new BufferedWriter(new FileWriter(outputFile));
+			statistics = SrlStatistics.acquire(outputFile, logCompress, logFlushRecords, logFlushInterval);
+			dataWriter = statistics.getLogWriter();
+			if (checkpoint) {
+				checkpointStatistics = CheckpointStatistics.acquire(outputFile);
+			}
+			if (featureFile != null) {
+				featureWriter = FeatureTupleWriter.acquire(featureFile);
+			}
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -114,12 +160,41 @@ public class FrameNetRoleAnnotator extends JCasAnnotator_ImplBase
 
 	@Override
 	public void process(JCas jcas) throws AnalysisEngineProcessException {
+		semanticFields.clear();
+		counts = checkpointStatistics == null ? statistics : new SrlStatistics();
+		String documentId = featureWriter != null && JCasUtil.exists(jcas, DocumentMetaData.class)
+				? DocumentMetaData.get(jcas).getDocumentId() : null;
+		// covering / covered annotations of all tokens, indexed once per document
+		TokenAnnotationIndex index = new TokenAnnotationIndex(jcas, evalMode);
 		for (Sentence sentence : JCasUtil.select(jcas, Sentence.class)) {
-			System.out.println("\n" +"sentence text: " +sentence.getCoveredText());
+			// trace messages are only built if the logger accepts them, for every n-th sentence
+			boolean trace = traceSentence();
+			boolean traceDeps = trace && getLogger().isLoggable(Level.FINER);
+			if (trace) {
+				getLogger().log(Level.FINE, "sentence text: " +sentence.getCoveredText());
+			}
 			HashSet<String> setOfRolesInSentence = new HashSet<String>();
 			
+			// the sense-tagged targets of the sentence, resolved once for all its dependencies
+			List<PredicateContext> predicates = Collections.emptyList();
+			if (!evalMode) {
+				predicates = PredicateContext.select(jcas, sentence, false);
+				if (trace) {
+					if (predicates.isEmpty()) {
+						getLogger().log(Level.FINE, "sth wrong with annotation of WSDItem or Sense");
+					}
+					for (PredicateContext predicate : predicates) {
+						getLogger().log(Level.FINE, "target: " +predicate.getTarget()
+								+"\t fnSenseInfo: " +predicate.getSenseId()
+								+"\t fnFrame: " +predicate.getFnFrame());
+					}
+				}
+			}
+			
 			List<Dependency> deps = JCasUtil.selectCovered(jcas, Dependency.class, sentence);	
-			getLogger().log(Level.INFO, "no of dependencies: " +deps.size());
+			if (trace) {
+				getLogger().log(Level.FINE, "no of dependencies: " +deps.size());
+			}
 			for (int i = 0; i < deps.size(); i++) {
 				Dependency dep = deps.get(i);	
 				
@@ -133,7 +208,7 @@ public class FrameNetRoleAnnotator extends JCasAnnotator_ImplBase
 					
 				String dependentPos = dependent.getPos().getType().getShortName();
 				//System.out.println("dependentPos: " +dependentPos);				
-				List<NamedEntity> neTags = JCasUtil.selectCovering(NamedEntity.class, dependent);
+				List<NamedEntity> neTags = index.getNamedEntities(dependent);
 				//System.out.println("no of ne tags: " +neTags.size());
 				if (!neTags.isEmpty()) {
 					depNeTag = neTags.get(0).getValue().toLowerCase();
@@ -143,13 +218,9 @@ public class FrameNetRoleAnnotator extends JCasAnnotator_ImplBase
 				} else {
 					depNeTag = "notANamedEntity";
 				}
-				List<SemanticField> depSemanticFields = JCasUtil.selectCovered(jcas, SemanticField.class, dependent.getBegin(), dependent.getEnd());	
-				String depSemField = depSemanticFields.get(0).getValue();
-				List<SemanticField> govSemanticFields = JCasUtil.selectCovered(jcas, SemanticField.class, governor.getBegin(), governor.getEnd());	
-				String govSemField = govSemanticFields.get(0).getValue();
 				
 				if (evalMode) {
-					List<SemanticArgument> semArgs = JCasUtil.selectCovering(jcas, SemanticArgument.class, dependent.getBegin(), dependent.getEnd());
+					List<SemanticArgument> semArgs = index.getSemanticArguments(dependent);
 					if (!semArgs.isEmpty()) {
 						for (int j = 0; j < semArgs.size(); j++) {
 							String[] roleString = semArgs.get(j).getRole().split("%");
@@ -161,131 +232,91 @@ public class FrameNetRoleAnnotator extends JCasAnnotator_ImplBase
 						String[] roleInfos = semRoleInfo.split("%");
 						String goldRoleFn = roleInfos[0];
 						target = roleInfos[1].replaceAll("\\.v", "");
-						System.out.println("target lemma: " +target);
 						fnFrame = roleInfos[3];						
-						System.out.println("fnFrame: " +fnFrame);
+						if (traceDeps) {
+							getLogger().log(Level.FINER, "target lemma: " +target +"\t fnFrame: " +fnFrame);
+						}
 						if (governor.getLemma().getValue().equals(target)) {
+							// semantic fields only for the dependencies of sense-tagged targets
+							String depSemField = semanticField(index, dependent);
+							String govSemField = semanticField(index, governor);
 							String predictedRoleLabel = roleInducer.labelDependent(dep.getDependencyType(), dependentPos, depSemField, depNeTag,
 									govSemField); 
 							
-							HashSet<String> setOfVnRoles = new HashSet<String>();
-							String[] vnRoles = predictedRoleLabel.split("%");
-							for (String role : vnRoles) {
-								setOfVnRoles.add(role);
-								setOfPredictedRoles.add(role);
+							FnRoleResolution resolution = roleInducer.resolve(predictedRoleLabel, fnFrame); // e.g. Agent%Pivot -> "Agent%Pivot%%" +roleSet.toString();
+							counts.addRoles(resolution.getVnRoles());
+							if (traceDeps) {
+								getLogger().log(Level.FINER, "predictedRoleLabel: " +predictedRoleLabel);
 							}
-							System.out.println("predictedRoleLabel: " +predictedRoleLabel);
-							String roleLabelMapped = roleInducer.vn2fnLabel(predictedRoleLabel, fnFrame); // e.g. Agent%Pivot -> "Agent%Pivot%%" +roleSet.toString();
 							
 							if (!predictedRoleLabel.equals("noRoleLabel")) {	
-								String[] roleMapping = roleLabelMapped.split("%%");
-								String fnRoleLabel = roleMapping[1];							
-								if (!fnRoleLabel.contains("noSemlinkEntry")) {	
-									predictedRoles++;
+								String fnRoleLabel = resolution.getFnRoleLabel();							
+								if (resolution.hasSemlinkEntry()) {	
+									counts.incrementPredictedRoles();
 					
 									if (fnRoleLabel.contains(goldRoleFn)) {
-										correctlyPredictedRoles++;
+										counts.incrementCorrectlyPredictedRoles();
 									} 
 	
-									System.out.println("dependency: " +dep.getDependencyType()
-											+"\t governor:" +governor.getLemma().getValue() +"/" +govSemField
-											+"\t dependent:" +dependent.getCoveredText() +"/"+dependentPos +"/" +depSemField +"/" +depNeTag					
-											+"\t role:"  + predictedRoleLabel +"/" +fnRoleLabel
-											+"\t gold:" +goldRoleFn
-											+"\t goldSpan:" +semArgs.get(0).getCoveredText()
-											);
-									try {
-										dataWriter.write("dependency:" +dep.getDependencyType()
+									if (traceDeps) {
+										getLogger().log(Level.FINER, "dependency: " +dep.getDependencyType()
 												+"\t governor:" +governor.getLemma().getValue() +"/" +govSemField
-												+"\t dependent:" +dependent.getCoveredText() +"/"+dependentPos +"/" +depSemField +"/" +depNeTag										
+												+"\t dependent:" +dependent.getCoveredText() +"/"+dependentPos +"/" +depSemField +"/" +depNeTag					
 												+"\t role:"  + predictedRoleLabel +"/" +fnRoleLabel
 												+"\t gold:" +goldRoleFn
 												+"\t goldSpan:" +semArgs.get(0).getCoveredText()
-												+"\n");
-										dataWriter.flush();
+												);
+									}
+									try {
+										writeRecord(dep, governor, govSemField, dependent, dependentPos, depSemField, depNeTag, predictedRoleLabel, fnRoleLabel, goldRoleFn, semArgs.get(0).getCoveredText());
 									} catch (IOException e) {
 										e.printStackTrace();
 									}
 								}
 							}
 
-						}	else {
-							System.out.println("governor and target do not match \t" +governor.getCoveredText() +" " +target);
+						}	else if (traceDeps) {
+							getLogger().log(Level.FINER, "governor and target do not match \t" +governor.getCoveredText() +" " +target);
 						}
-					} else {
-						System.out.println("semArgs is empty");
+					} else if (traceDeps) {
+						getLogger().log(Level.FINER, "semArgs is empty");
 					}										
 				} else { // prediction mode
 					try {
-						/*
-						 * WSDItem
-   sofa: _InitialView
-   begin: 77
-   end: 85
-   subjectOfDisambiguation: "achieve"
-   constituents: FSArray
-   id: "achieve#2870"
-   pos: "VERB"
-[achieved]
-Sense
-   sofa: _InitialView
-   begin: 77
-   end: 85
-   id: "achieve#2870%%achieve%Accomplishment%12306"
-   confidence: 0.0
-   description: <null>
-
-						 */
-		    		List<WSDItem> wsdItems = JCasUtil.selectCovered(jcas, WSDItem.class, sentence);
-		    		// Assumption: Each sentence has only one target verb with sense annotation
-		    		if (wsdItems.get(0).getSubjectOfDisambiguation().trim().contains(" ")) { // this is a phrasal verb!
-						String[] targetString = wsdItems.get(0).getSubjectOfDisambiguation().trim().split(" ");
-						target = targetString[0];
-		    		} else {
-		    			target = wsdItems.get(0).getSubjectOfDisambiguation().trim();
-					}
-					System.out.println("target: " +target);
-					
-					List<Sense> senseList = JCasUtil.selectCovered(jcas, Sense.class, sentence);
-					//String fnSenseInfo = wsdResults.get(0).getSenses(0).getId();
-					String fnSenseInfo = senseList.get(0).getId();
-					String[] allInfos = fnSenseInfo.split("%%");
-					String[] senseInfos = allInfos[1].split("%");
-					fnFrame = senseInfos[1].trim();
-					// format: id: "achieve#2870%%achieve%Accomplishment%12306"
-					// OLD format: launch#1655_Key.xml~~launch~Shoot_projectiles~5667
-					// OLD format of fnSenseInfo: want~Desiring~6412
-					System.out.println("fnSenseInfo = senseList.get(0).getId(): " +fnSenseInfo);
-					System.out.println("fnFrame: " +fnFrame);
-					if (governor.getLemma().getValue().equals(target)) {
+						PredicateContext predicate = PredicateContext.forGovernor(predicates, governor);
+						if (predicate != null) {
+							fnFrame = predicate.getFnFrame();
+							// semantic fields only for the dependencies of sense-tagged targets
+							String depSemField = semanticField(index, dependent);
+							String govSemField = semanticField(index, governor);
+							if (featureWriter != null) {
+								writeFeatures(documentId, predicate, dep, dependentPos, depSemField, depNeTag, govSemField,
+										index.getConstituents(dependent));
+							}
 						String predictedRoleLabel = roleInducer.labelDependent(dep.getDependencyType(), dependentPos, depSemField, depNeTag,
 								govSemField);
 						
-						HashSet<String> setOfVnRoles = new HashSet<String>();
-						String[] vnRoles = predictedRoleLabel.split("%");
-						for (String role : vnRoles) {
-							setOfVnRoles.add(role);
-							setOfPredictedRoles.add(role);
-						}
-						String roleLabelMapped = roleInducer.vn2fnLabel(predictedRoleLabel, fnFrame); // e.g. Agent%Pivot -> "Agent%Pivot%%" +roleSet.toString();
-						
-						String[] roleMapping = roleLabelMapped.split("%%");
-						String fnRoleLabel = roleMapping[1];
+						FnRoleResolution resolution = roleInducer.resolve(predictedRoleLabel, fnFrame); // e.g. Agent%Pivot -> "Agent%Pivot%%" +roleSet.toString();
+						counts.addRoles(resolution.getVnRoles());
+						String fnRoleLabel = resolution.getFnRoleLabel();
 						
 						if (!predictedRoleLabel.equals("noRoleLabel")) {							
-							List<Constituent> constituents = JCasUtil.selectCovering(jcas, Constituent.class, dependent.getBegin(), dependent.getEnd());
+							List<Constituent> constituents = index.getConstituents(dependent);
 							if (!constituents.isEmpty()) {
 								//predictedRoles++;
 								Constituent constit = constituents.get(constituents.size()-1);
-								String phraseType = constituents.get(constituents.size()-1).getConstituentType(); System.out.println("phraseType: " +phraseType);
+								if (traceDeps) {
+									getLogger().log(Level.FINER, "phraseType: " +constit.getConstituentType()
+											+"\t predicted FN roleLabel: " +fnRoleLabel);
+								}
 								SemanticArgument semArg = new SemanticArgument(jcas,constit.getBegin(),constit.getEnd());
-								semArg.setRole(fnRoleLabel); System.out.println("predicted FN roleLabel: " +fnRoleLabel);
+								semArg.setRole(fnRoleLabel);
 								semArg.addToIndexes();
 								
-								SemanticPredicate semPred = new SemanticPredicate(jcas,senseList.get(0).getBegin(),senseList.get(0).getEnd());
+								SemanticPredicate semPred = new SemanticPredicate(jcas,predicate.getBegin(),predicate.getEnd());
 								semPred.setCategory(fnFrame);
 								// alternative:
-								// semPred.setCategory(senseList.get(0).getId());
+								// semPred.setCategory(predicate.getSenseId());
 								
 								FSArray argumentsFSArray = new FSArray(jcas,1);
 								argumentsFSArray.set(0,semArg); // FSArray index starts with 0
@@ -294,62 +325,167 @@ Sense
 								semPred.addToIndexes();
 
 							}
-							System.out.println("dependency: " +dep.getDependencyType()
-									+"\t governor:" +governor.getLemma().getValue() +"/" +govSemField
-									+"\t dependent:" +dependent.getCoveredText() +"/"+dependentPos +"/" +depSemField +"/" +depNeTag					
-									+"\t role:"  + predictedRoleLabel +"/" +fnRoleLabel
-									);
-							try {
-								dataWriter.write("dependency:" +dep.getDependencyType()
+							if (traceDeps) {
+								getLogger().log(Level.FINER, "dependency: " +dep.getDependencyType()
 										+"\t governor:" +governor.getLemma().getValue() +"/" +govSemField
-										+"\t dependent:" +dependent.getCoveredText() +"/"+dependentPos +"/" +depSemField +"/" +depNeTag										
+										+"\t dependent:" +dependent.getCoveredText() +"/"+dependentPos +"/" +depSemField +"/" +depNeTag					
 										+"\t role:"  + predictedRoleLabel +"/" +fnRoleLabel
-										+"\n");
-								dataWriter.flush();
+										);
+							}
+							try {
+								writeRecord(dep, governor, govSemField, dependent, dependentPos, depSemField, depNeTag, predictedRoleLabel, fnRoleLabel, null, null);
 							} catch (IOException e) {
 								e.printStackTrace();
 							}
 						}
 					}	
 					} catch (IndexOutOfBoundsException e1) {
-						System.out.println("sth wrong with annotation of WSDItem, WSDResult or Constituent");
+						getLogger().log(Level.WARNING, "sth wrong with annotation of WSDItem, WSDResult or Constituent", e1);
 					}	catch (NullPointerException e2) {
-						System.out.println("sth wrong with annotation of WSDItem, WSDResult or Constituent");	
+						getLogger().log(Level.WARNING, "sth wrong with annotation of WSDItem, WSDResult or Constituent", e2);	
 					}
 				}
 				} // if governor equals V
 			}	
-			allSemArgs = allSemArgs + setOfRolesInSentence.size();
-			System.out.println("allSemArgs now: " +allSemArgs);
-			System.out.println("semantic roles in sentence: " +setOfRolesInSentence.toString());
+			counts.addSemArgs(setOfRolesInSentence.size());
+			if (trace) {
+				getLogger().log(Level.FINE, "allSemArgs now: " +statistics.getAllSemArgs()
+						+"\t semantic roles in sentence: " +setOfRolesInSentence.toString());
+			}
 		}		
+		if (checkpointStatistics != null) {
+			statistics.merge(counts);
+			checkpointStatistics.record(jcas.getCas(), counts);
+		}
+	}
+	
+	
+	/**
+	 * The semantic field of a token, from the semantic field provider if there
+	 * is one, at most once per token and document, otherwise from the
+	 * SemanticField annotation of the token.
+	 */
+	private String semanticField(TokenAnnotationIndex index, Token token) throws AnalysisEngineProcessException {
+		if (semanticFieldProvider == null) {
+			return index.getSemanticFields(token).get(0).getValue();
+		}
+		String semField = semanticFields.get(token);
+		if (semField == null && !semanticFields.containsKey(token)) {
+			try {
+				semField = semanticFieldProvider.getSemanticTag(token);
+			} catch (ResourceAccessException e) {
+				throw new AnalysisEngineProcessException(e);
+			}
+			semanticFields.put(token, semField);
+		}
+		return semField;
+	}
+	
+	
+	/**
+	 * Write the rule inputs of a dependency to the feature file, with the span
+	 * of the constituent that gets the role.
+	 */
+	private void writeFeatures(String documentId, PredicateContext predicate, Dependency dep, String dependentPos,
+			String depSemField, String depNeTag, String govSemField, List<Constituent> constituents)
+		throws AnalysisEngineProcessException {
+		int argumentBegin = -1;
+		int argumentEnd = -1;
+		if (!constituents.isEmpty()) {
+			Constituent constit = constituents.get(constituents.size()-1);
+			argumentBegin = constit.getBegin();
+			argumentEnd = constit.getEnd();
+		}
+		try {
+			featureWriter.add(new FeatureTuple(documentId, predicate.getFnFrame(), dep.getDependencyType(), dependentPos,
+					depSemField, depNeTag, govSemField, predicate.getBegin(), predicate.getEnd(), argumentBegin, argumentEnd));
+		} catch (IOException e) {
+			throw new AnalysisEngineProcessException(e);
+		}
+	}
+	
+	
+	/**
+	 * Write a labeled dependency to the SRL log. The record is built in a
+	 * reusable buffer, gold role and span are only written in evaluation mode.
+	 */
+	private void writeRecord(Dependency dep, Token governor, String govSemField, Token dependent, String dependentPos,
+			String depSemField, String depNeTag, String predictedRoleLabel, String fnRoleLabel, String goldRoleFn,
+			String goldSpan) throws IOException {
+		record.setLength(0);
+		record.append("dependency:").append(dep.getDependencyType())
+				.append("\t governor:").append(governor.getLemma().getValue()).append('/').append(govSemField)
+				.append("\t dependent:").append(dependent.getCoveredText()).append('/').append(dependentPos)
+				.append('/').append(depSemField).append('/').append(depNeTag)
+				.append("\t role:").append(predictedRoleLabel);
+		if (fnRoleLabel != null) {
+			record.append('/').append(fnRoleLabel);
+		}
+		if (goldRoleFn != null) {
+			record.append("\t gold:").append(goldRoleFn)
+					.append("\t goldSpan:").append(goldSpan);
+		}
+		dataWriter.write(record);
+	}
+	
+	/**
+	 * Count the sentence and decide whether it is traced: the logger has to
+	 * accept FINE messages and the sentence has to be picked by the sample rate.
+	 */
+	private boolean traceSentence() {
+		long sentence = sentenceCount++;
+		return getLogger().isLoggable(Level.FINE) && (traceSampleRate <= 1 || sentence % traceSampleRate == 0);
 	}
 	
 	
 	@Override
 	public void collectionProcessComplete() throws AnalysisEngineProcessException {
+		completed = true;
+		if (featureWriter != null) {
+			try {
+				long tuples = featureWriter.release();
+				if (tuples >= 0) {
+					getLogger().log(Level.INFO, "Wrote " +tuples +" feature tuples to " +featureFile);
+				}
+			} catch (IOException e) {
+				throw new AnalysisEngineProcessException(e);
+			}
+		}
+		if (checkpointStatistics != null) {
+			checkpointStatistics.release();
+		}
+		// all instances of a parallel run count into the same statistics, the last one to complete reports them
+		if (!statistics.release()) {
+			return;
+		}
 		
 		if (evalMode) {
-			Long precision = ((long)correctlyPredictedRoles/(long)predictedRoles);
+			double precision = statistics.getPrecision();
 		
-			System.out.println("Correctly predicted roles:\t" +correctlyPredictedRoles +"\t precision \t" +precision);
+			System.out.println("Correctly predicted roles:\t" +statistics.getCorrectlyPredictedRoles() +"\t precision \t" +precision);
 
-			System.out.println("Total Number of gold semantic arguments that belong to a verbal predicate:\t" +allSemArgs);
+			System.out.println("Total Number of gold semantic arguments that belong to a verbal predicate:\t" +statistics.getAllSemArgs());
 		}
-		System.out.println("Total Number of automatically labeled arguments:\t" + predictedRoles);
-		System.out.println("set of predicted roles:\t" + setOfPredictedRoles.toString());
+		System.out.println("Total Number of automatically labeled arguments:\t" + statistics.getPredictedRoles());
+		System.out.println("set of predicted roles:\t" + statistics.getSetOfPredictedRoles().toString());
+		System.out.println("predicted role counts:\t" + statistics.getRoleCounts().toString());
 		
 		// ****************
 		 
 		try {
 			if (evalMode) {		
-				Long precision = ((long)correctlyPredictedRoles/(long)predictedRoles);
-				dataWriter.write("Correctly predicted roles:\t" +correctlyPredictedRoles +"\t precision \t" +precision);
-				dataWriter.write("Total Number of gold semantic arguments that belong to a verbal predicate:\t" +allSemArgs +"\n");
+				double precision = statistics.getPrecision();
+				dataWriter.writeRaw("Correctly predicted roles:\t" +statistics.getCorrectlyPredictedRoles() +"\t precision \t" +precision +"\n");
+				dataWriter.writeRaw("Total Number of gold semantic arguments that belong to a verbal predicate:\t" +statistics.getAllSemArgs() +"\n");
+			}
+			dataWriter.writeRaw("Total Number of automatically labeled arguments:\t" + statistics.getPredictedRoles() +"\n");
+			dataWriter.writeRaw("set of predicted roles:\t" + statistics.getSetOfPredictedRoles().toString() +"\n");
+			dataWriter.writeRaw("predicted role counts:\t" + statistics.getRoleCounts().toString() +"\n");
+			dataWriter.close();
+			// in a checkpointed run, the CheckpointCommitter stores the counts of the committed documents
+			if (checkpointStatistics == null) {
+				statistics.store(SrlStatistics.statsFile(outputFile));
 			}
-			dataWriter.write("Total Number of automatically labeled arguments:\t" + predictedRoles +"\n");
-			dataWriter.write("set of predicted roles:\t" + setOfPredictedRoles.toString() +"\n");
-			dataWriter.flush();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -357,6 +493,43 @@ Sense
 
 	}
 
+	/**
+	 * A failed run does not complete the collection. Release the shared
+	 * writers anyway, so that the buffered log records and feature tuples
+	 * are not lost and the counts so far are stored. A checkpointed run
+	 * keeps only the counts stored by the CheckpointCommitter, those of the
+	 * documents it committed.
+	 */
+	@Override
+	public void destroy() {
+		if (!completed && statistics != null) {
+			completed = true;
+			if (featureWriter != null) {
+				try {
+					featureWriter.release();
+				} catch (IOException e) {
+					getLogger().log(Level.WARNING, "Could not write the feature file " +featureFile, e);
+				}
+			}
+			try {
+				if (checkpointStatistics != null) {
+					checkpointStatistics.release();
+				}
+				if (statistics.release()) {
+					dataWriter.close();
+					if (checkpointStatistics == null) {
+						statistics.store(SrlStatistics.statsFile(outputFile));
+					}
+				} else {
+					dataWriter.flush();
+				}
+			} catch (IOException e) {
+				getLogger().log(Level.WARNING, "Could not write the SRL log " +outputFile, e);
+			}
+		}
+		super.destroy();
+	}
+
 	
 	/*
 	 * 
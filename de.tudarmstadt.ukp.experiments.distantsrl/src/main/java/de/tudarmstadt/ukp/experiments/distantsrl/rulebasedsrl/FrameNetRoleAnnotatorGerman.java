@@ -18,34 +18,35 @@
 package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
 
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.uima.UimaContext;
 import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
 import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
 import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.descriptor.ExternalResource;
 import org.apache.uima.fit.descriptor.TypeCapability;
 import org.apache.uima.fit.util.JCasUtil;
 import org.apache.uima.jcas.JCas;
 import org.apache.uima.jcas.cas.FSArray;
+import org.apache.uima.resource.ResourceAccessException;
 import org.apache.uima.resource.ResourceInitializationException;
 import org.apache.uima.util.Level;
 
+import de.tudarmstadt.ukp.dkpro.core.api.metadata.type.DocumentMetaData;
 import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
 import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
 import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemanticArgument;
-import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemanticField;
 import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemanticPredicate;
 import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.constituent.Constituent;
 import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
-import de.tudarmstadt.ukp.dkpro.wsd.type.Sense;
-import de.tudarmstadt.ukp.dkpro.wsd.type.WSDItem;
+import de.tudarmstadt.ukp.experiments.distantsrl.utils.SrlLogWriter;
+import de.tudarmstadt.ukp.uby.resource.SemanticTagProvider;
 
 
 /**
@@ -77,29 +78,76 @@ public class FrameNetRoleAnnotatorGerman extends JCasAnnotator_ImplBase
     public static final String PARAM_SEMLINK_LOCATION = "mappingLoc";
     @ConfigurationParameter(name = PARAM_SEMLINK_LOCATION, mandatory=true, description="Location of SemLink mappings")
     protected String mappingLoc;
+
+    public static final String PARAM_LOG_FLUSH_RECORDS = "logFlushRecords";
+    @ConfigurationParameter(name = PARAM_LOG_FLUSH_RECORDS, mandatory=false, defaultValue="1000", description="Flush the result file after this many records, 1 flushes every record, 0 disables the limit")
+    protected int logFlushRecords;
+
+    public static final String PARAM_LOG_FLUSH_INTERVAL = "logFlushInterval";
+    @ConfigurationParameter(name = PARAM_LOG_FLUSH_INTERVAL, mandatory=false, defaultValue="10000", description="Flush the result file when this many milliseconds passed since the last flush, 0 disables the limit")
+    protected long logFlushInterval;
+
+    public static final String PARAM_LOG_COMPRESS = "logCompress";
+    @ConfigurationParameter(name = PARAM_LOG_COMPRESS, mandatory=false, defaultValue="false", description="Gzip the result file, .gz is appended to the file name")
+    protected boolean logCompress;
     
     
     
-    private Integer predictedRoles = 0; 
-    // the number of predicted roles for which a SemLink mapping exists, i.e. only those role/frame combinations that can be evaluated
-    
-    private HashSet<String> setOfPredictedRoles = new HashSet<String>();
+    // counted in the shared statistics:
+    // predictedRoles: the number of predicted roles for which a SemLink mapping exists, i.e. only those role/frame combinations that can be evaluated
+
+    public static final String PARAM_TRACE_SAMPLE_RATE = "traceSampleRate";
+    @ConfigurationParameter(name = PARAM_TRACE_SAMPLE_RATE, mandatory=false, defaultValue="1", description="Trace only every n-th sentence when the log level is FINE or finer")
+    protected int traceSampleRate;
+
+    private long sentenceCount = 0;
+
+    public static final String RES_SEMANTIC_FIELD_PROVIDER = "semanticFieldProvider";
+    // if set, the semantic fields of governors and dependents are looked up on demand
+    // instead of read from SemanticField annotations
+    @ExternalResource(key = RES_SEMANTIC_FIELD_PROVIDER, mandatory=false)
+    protected SemanticTagProvider semanticFieldProvider;
+
+    private Map<Token, String> semanticFields = new HashMap<Token, String>();	// provider lookups of the current document
+
+    public static final String PARAM_FEATURE_FILE = "featureFile";
+    @ConfigurationParameter(name = PARAM_FEATURE_FILE, mandatory=false, description="If set, the rule inputs of the dependencies of sense-tagged targets are written to this file, for the RoleRelabeler")
+    protected File featureFile;
+
+    private FeatureTupleWriter featureWriter;	// shared with the other instances of a parallel run
+
+    public static final String PARAM_CHECKPOINT = "checkpoint";
+    @ConfigurationParameter(name = PARAM_CHECKPOINT, mandatory=false, defaultValue="false", description="Keep the counts of each document until the CheckpointCommitter commits it, only the committed counts are stored")
+    protected boolean checkpoint;
+
+    private CheckpointStatistics checkpointStatistics;	// the committed counts of a checkpointed run
 
 
     private RoleInducerGerman roleInducer;
-    private BufferedWriter dataWriter;	// File writer for predicted and gold VerbNet roles
+    private SrlStatistics statistics;	// counts and log file shared with the other instances of a parallel run
+    private SrlLogWriter dataWriter;	// File writer for predicted and gold VerbNet roles
+    private SrlStatistics counts;	// the shared statistics, or the counts of the current document in a checkpointed run
+    private StringBuilder record = new StringBuilder(256);
+    private boolean completed = false;	// collectionProcessComplete ran and released the shared writers
 
     
 	@Override
 	public void initialize(UimaContext context) throws ResourceInitializationException {
 		super.initialize(context);
 		try {
-			dataWriter = new BufferedWriter(new FileWriter(outputFile));
+			statistics = SrlStatistics.acquire(outputFile, logCompress, logFlushRecords, logFlushInterval);
+			dataWriter = statistics.getLogWriter();
+			if (checkpoint) {
+				checkpointStatistics = CheckpointStatistics.acquire(outputFile);
+			}
+			if (featureFile != null) {
+				featureWriter = FeatureTupleWriter.acquire(featureFile);
+			}
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 
-		System.err.println(mappingLoc);
+		getLogger().log(Level.INFO, "SemLink location: " +mappingLoc);
 		roleInducer = new RoleInducerGerman(mappingLoc);
 		getLogger().log(Level.INFO, "Read full Semlink Mapping");
 		getLogger().log(Level.INFO, "Read mapping of FN frame to VN classes from Semlink");		
@@ -108,11 +156,38 @@ public class FrameNetRoleAnnotatorGerman extends JCasAnnotator_ImplBase
 
 	@Override
 	public void process(JCas jcas) throws AnalysisEngineProcessException {
+		semanticFields.clear();
+		counts = checkpointStatistics == null ? statistics : new SrlStatistics();
+		String documentId = featureWriter != null && JCasUtil.exists(jcas, DocumentMetaData.class)
+				? DocumentMetaData.get(jcas).getDocumentId() : null;
+		// covering / covered annotations of all tokens, indexed once per document
+		TokenAnnotationIndex index = new TokenAnnotationIndex(jcas, false);
 		for (Sentence sentence : JCasUtil.select(jcas, Sentence.class)) {
-			System.out.println("\n" +"sentence text: " +sentence.getCoveredText());
+			// trace messages are only built if the logger accepts them, for every n-th sentence
+			boolean trace = traceSentence();
+			boolean traceDeps = trace && getLogger().isLoggable(Level.FINER);
+			if (trace) {
+				getLogger().log(Level.FINE, "sentence text: " +sentence.getCoveredText());
+			}
+			
+			// the sense-tagged targets of the sentence, resolved once for all its dependencies;
+			// SALSA frames like "Frame-salsa" are mapped to the FrameNet frame
+			List<PredicateContext> predicates = PredicateContext.select(jcas, sentence, true);
+			if (trace) {
+				if (predicates.isEmpty()) {
+					getLogger().log(Level.FINE, "sth wrong with annotation of WSDItem or Sense");
+				}
+				for (PredicateContext predicate : predicates) {
+					getLogger().log(Level.FINE, "target: " +predicate.getTarget()
+							+"\t fnSenseInfo: " +predicate.getSenseId()
+							+"\t fnFrame: " +predicate.getFnFrame());
+				}
+			}
 			
 			List<Dependency> deps = JCasUtil.selectCovered(jcas, Dependency.class, sentence);	
-			getLogger().log(Level.INFO, "no of dependencies: " +deps.size());
+			if (trace) {
+				getLogger().log(Level.FINE, "no of dependencies: " +deps.size());
+			}
 			for (int i = 0; i < deps.size(); i++) {
 				Dependency dep = deps.get(i);	
 				
@@ -125,96 +200,69 @@ public class FrameNetRoleAnnotatorGerman extends JCasAnnotator_ImplBase
 				if (governor.getPos().getType().getShortName().equals("V")) {
 					
 				String dependentPos = dependent.getPos().getType().getShortName();
-				List<NamedEntity> neTags = JCasUtil.selectCovering(NamedEntity.class, dependent);
+				List<NamedEntity> neTags = index.getNamedEntities(dependent);
 				if (!neTags.isEmpty()) {
 					depNeTag = neTags.get(0).getValue().toLowerCase();
 				} else {
 					depNeTag = "notANamedEntity";
 				}
-				List<SemanticField> depSemanticFields = JCasUtil.selectCovered(jcas, SemanticField.class, dependent.getBegin(), dependent.getEnd());	
-				String depSemField = depSemanticFields.get(0).getValue();
-				List<SemanticField> govSemanticFields = JCasUtil.selectCovered(jcas, SemanticField.class, governor.getBegin(), governor.getEnd());	
-				String govSemField = govSemanticFields.get(0).getValue();
 				
-				try { // get the FrameNet sense of the target verb
-		    		List<WSDItem> wsdItems = JCasUtil.selectCovered(jcas, WSDItem.class, sentence);
-		    		// Assumption: Each sentence has only one target verb with sense annotation
-		    		if (wsdItems.get(0).getSubjectOfDisambiguation().trim().contains(" ")) { // this is a phrasal verb!
-						String[] targetString = wsdItems.get(0).getSubjectOfDisambiguation().trim().split(" ");
-						target = targetString[0];
-		    		} else {
-		    			target = wsdItems.get(0).getSubjectOfDisambiguation().trim();
-					}
-					System.out.println("target: " +target);
-					
-					List<Sense> senseList = JCasUtil.selectCovered(jcas, Sense.class, sentence);
-					//String fnSenseInfo = wsdResults.get(0).getSenses(0).getId();
-					String fnSenseInfo = senseList.get(0).getId();
-					String[] allInfos = fnSenseInfo.split("%%");
-					String[] senseInfos = allInfos[1].split("%");
-					fnFrame = senseInfos[1].trim();
-					if (fnFrame.contains("salsa")){ //NEW TODO
-						fnFrame = fnFrame.split("-")[0];
-					}
-					// format: id: "achieve#2870%%achieve%Accomplishment%12306"
-					// OLD format: launch#1655_Key.xml~~launch~Shoot_projectiles~5667
-					// OLD format of fnSenseInfo: want~Desiring~6412
-					System.out.println("fnSenseInfo = senseList.get(0).getId(): " +fnSenseInfo);
-					System.out.println("fnFrame: " +fnFrame);
-					if (governor.getLemma().getValue().equals(target)) {
+				try { // the sense-tagged target this dependency belongs to, if any
+					PredicateContext predicate = PredicateContext.forGovernor(predicates, governor);
+					if (predicate != null) {
+						target = predicate.getTarget();
+						fnFrame = predicate.getFnFrame();
+
+						// semantic fields only for the dependencies of sense-tagged targets
+						String depSemField = semanticField(index, dependent);
+						String govSemField = semanticField(index, governor);
+						if (featureWriter != null) {
+							writeFeatures(documentId, predicate, dep, dependentPos, depSemField, depNeTag, govSemField,
+									index.getConstituents(dependent));
+						}
 
 						String predictedRoleLabel = roleInducer.labelDependent(dep.getDependencyType(), dependentPos, depSemField, depNeTag,
 								govSemField);
-						HashSet<String> setOfVnRoles = new HashSet<String>();
-						String[] vnRoles = predictedRoleLabel.split("%");
-						for (String role : vnRoles) {
-							setOfVnRoles.add(role);
-							setOfPredictedRoles.add(role);
-						}
-						String roleLabelMapped = roleInducer.vn2fnLabel(predictedRoleLabel, fnFrame); // e.g. Agent%Pivot -> "Agent%Pivot%%" +roleSet.toString();
-						
-						String[] roleMapping = roleLabelMapped.split("%%");
-						String fnRoleLabel = roleMapping[1];
+						FnRoleResolution resolution = roleInducer.resolve(predictedRoleLabel, fnFrame); // e.g. Agent%Pivot -> "Agent%Pivot%%" +roleSet.toString();
+						counts.addRoles(resolution.getVnRoles());
+						String fnRoleLabel = resolution.getFnRoleLabel();
 				
 						if (!predictedRoleLabel.equals("noRoleLabel")) {	
 							
-							List<Constituent> constituents = JCasUtil.selectCovering(jcas, Constituent.class, dependent.getBegin(), dependent.getEnd());
+							List<Constituent> constituents = index.getConstituents(dependent);
 							if (!constituents.isEmpty()) {
-								predictedRoles++;								
+								counts.incrementPredictedRoles();								
 								Constituent constit = constituents.get(constituents.size()-1);
-								String phraseType = constituents.get(constituents.size()-1).getConstituentType(); 
 								SemanticArgument semArg = new SemanticArgument(jcas,constit.getBegin(),constit.getEnd());
-								semArg.setRole(fnRoleLabel); System.out.println("predicted FN roleLabel: " +fnRoleLabel);
+								semArg.setRole(fnRoleLabel);
 								semArg.addToIndexes();								
-								SemanticPredicate semPred = new SemanticPredicate(jcas,senseList.get(0).getBegin(),senseList.get(0).getEnd());
+								SemanticPredicate semPred = new SemanticPredicate(jcas,predicate.getBegin(),predicate.getEnd());
 								semPred.setCategory(fnFrame);
 								FSArray argumentsFSArray = new FSArray(jcas,1);
 								argumentsFSArray.set(0,semArg); // FSArray index starts with 0								
 								semPred.setArguments(argumentsFSArray);
 								semPred.addToIndexes();
 
-								System.out.println("target: " +target
-										+"\t" +"dep: " +dep.getDependencyType()
-										+"\t" +"dep POS: " +dependentPos
-										+"\t" +"dep SemField: " +depSemField
-										+"\t" +"dep text: " +dep.getCoveredText()
-										+"\t" +"phrase type: " +phraseType
-										+"\t" +"phrase text: " +constit.getCoveredText()
-										+"\t" +"sem role: " +predictedRoleLabel
-										);
+								if (traceDeps) {
+									getLogger().log(Level.FINER, "target: " +target
+											+"\t" +"dep: " +dep.getDependencyType()
+											+"\t" +"dep POS: " +dependentPos
+											+"\t" +"dep SemField: " +depSemField
+											+"\t" +"dep text: " +dep.getCoveredText()
+											+"\t" +"phrase type: " +constit.getConstituentType()
+											+"\t" +"phrase text: " +constit.getCoveredText()
+											+"\t" +"sem role: " +predictedRoleLabel
+											+"\t" +"predicted FN roleLabel: " +fnRoleLabel
+											);
+								}
 								try {
-									dataWriter.write("dependency:" +dep.getDependencyType()
-											+"\t governor:" +governor.getLemma().getValue() +"/" +govSemField
-											+"\t dependent:" +dependent.getCoveredText() +"/"+dependentPos +"/" +depSemField +"/" +depNeTag										
-											+"\t role:"  + predictedRoleLabel 
-											+"\n");
-									dataWriter.flush();
+									writeRecord(dep, governor, govSemField, dependent, dependentPos, depSemField, depNeTag, predictedRoleLabel, null, null, null);
 								} catch (IOException e) {
 									e.printStackTrace();
 								}
 							}
-						} else {
-							System.out.println("target: " +target
+						} else if (traceDeps) {
+							getLogger().log(Level.FINER, "target: " +target
 									+"\t" +"dep: " +dep.getDependencyType()
 									+"\t" +"dep POS: " +dependentPos
 									+"\t" +"dep SemField: " +depSemField
@@ -225,32 +273,172 @@ public class FrameNetRoleAnnotatorGerman extends JCasAnnotator_ImplBase
 					}
 					
 			} catch (IndexOutOfBoundsException e1) {
-				e1.printStackTrace();
-				System.out.println("sth wrong with annotation of WSDItem, WSDResult or Constituent");
+				getLogger().log(Level.WARNING, "sth wrong with annotation of WSDItem, WSDResult or Constituent", e1);
 			}	catch (NullPointerException e2) {
-				e2.printStackTrace();
-				System.out.println("sth wrong with annotation of WSDItem, WSDResult or Constituent");	
+				getLogger().log(Level.WARNING, "sth wrong with annotation of WSDItem, WSDResult or Constituent", e2);	
 			}
 			} // if governor equals V
 		} 
 	}	
 			
+		if (checkpointStatistics != null) {
+			statistics.merge(counts);
+			checkpointStatistics.record(jcas.getCas(), counts);
+		}
 }
 	
+	/**
+	 * The semantic field of a token, from the semantic field provider if there
+	 * is one, at most once per token and document, otherwise from the
+	 * SemanticField annotation of the token.
+	 */
+	private String semanticField(TokenAnnotationIndex index, Token token) throws AnalysisEngineProcessException {
+		if (semanticFieldProvider == null) {
+			return index.getSemanticFields(token).get(0).getValue();
+		}
+		String semField = semanticFields.get(token);
+		if (semField == null && !semanticFields.containsKey(token)) {
+			try {
+				semField = semanticFieldProvider.getSemanticTag(token);
+			} catch (ResourceAccessException e) {
+				throw new AnalysisEngineProcessException(e);
+			}
+			semanticFields.put(token, semField);
+		}
+		return semField;
+	}
+	
+	
+	/**
+	 * Write the rule inputs of a dependency to the feature file, with the span
+	 * of the constituent that gets the role.
+	 */
+	private void writeFeatures(String documentId, PredicateContext predicate, Dependency dep, String dependentPos,
+			String depSemField, String depNeTag, String govSemField, List<Constituent> constituents)
+		throws AnalysisEngineProcessException {
+		int argumentBegin = -1;
+		int argumentEnd = -1;
+		if (!constituents.isEmpty()) {
+			Constituent constit = constituents.get(constituents.size()-1);
+			argumentBegin = constit.getBegin();
+			argumentEnd = constit.getEnd();
+		}
+		try {
+			featureWriter.add(new FeatureTuple(documentId, predicate.getFnFrame(), dep.getDependencyType(), dependentPos,
+					depSemField, depNeTag, govSemField, predicate.getBegin(), predicate.getEnd(), argumentBegin, argumentEnd));
+		} catch (IOException e) {
+			throw new AnalysisEngineProcessException(e);
+		}
+	}
+	
+	
+	/**
+	 * Write a labeled dependency to the SRL log. The record is built in a
+	 * reusable buffer, optional parts that are null are left out.
+	 */
+	private void writeRecord(Dependency dep, Token governor, String govSemField, Token dependent, String dependentPos,
+			String depSemField, String depNeTag, String predictedRoleLabel, String fnRoleLabel, String goldRoleFn,
+			String goldSpan) throws IOException {
+		record.setLength(0);
+		record.append("dependency:").append(dep.getDependencyType())
+				.append("\t governor:").append(governor.getLemma().getValue()).append('/').append(govSemField)
+				.append("\t dependent:").append(dependent.getCoveredText()).append('/').append(dependentPos)
+				.append('/').append(depSemField).append('/').append(depNeTag)
+				.append("\t role:").append(predictedRoleLabel);
+		if (fnRoleLabel != null) {
+			record.append('/').append(fnRoleLabel);
+		}
+		if (goldRoleFn != null) {
+			record.append("\t gold:").append(goldRoleFn)
+					.append("\t goldSpan:").append(goldSpan);
+		}
+		dataWriter.write(record);
+	}
+	
+	/**
+	 * Count the sentence and decide whether it is traced: the logger has to
+	 * accept FINE messages and the sentence has to be picked by the sample rate.
+	 */
+	private boolean traceSentence() {
+		long sentence = sentenceCount++;
+		return getLogger().isLoggable(Level.FINE) && (traceSampleRate <= 1 || sentence % traceSampleRate == 0);
+	}
+	
 	@Override
 	public void collectionProcessComplete() throws AnalysisEngineProcessException {
+		completed = true;
+		if (featureWriter != null) {
+			try {
+				long tuples = featureWriter.release();
+				if (tuples >= 0) {
+					getLogger().log(Level.INFO, "Wrote " +tuples +" feature tuples to " +featureFile);
+				}
+			} catch (IOException e) {
+				throw new AnalysisEngineProcessException(e);
+			}
+		}
+		if (checkpointStatistics != null) {
+			checkpointStatistics.release();
+		}
+		// all instances of a parallel run count into the same statistics, the last one to complete reports them
+		if (!statistics.release()) {
+			return;
+		}
 		
-		System.out.println("Total Number of automatically labeled arguments:\t" + predictedRoles);
-		System.out.println("set of predicted VerbNet roles:\t" + setOfPredictedRoles.toString());
+		System.out.println("Total Number of automatically labeled arguments:\t" + statistics.getPredictedRoles());
+		System.out.println("set of predicted VerbNet roles:\t" + statistics.getSetOfPredictedRoles().toString());
+		System.out.println("predicted VerbNet role counts:\t" + statistics.getRoleCounts().toString());
 		try {
-			dataWriter.write("Total Number of automatically labeled arguments:\t" + predictedRoles +"\n");
-			dataWriter.write("set of predicted VerbNet roles:\t" + setOfPredictedRoles.toString() +"\n");
-			dataWriter.flush();
+			dataWriter.writeRaw("Total Number of automatically labeled arguments:\t" + statistics.getPredictedRoles() +"\n");
+			dataWriter.writeRaw("set of predicted VerbNet roles:\t" + statistics.getSetOfPredictedRoles().toString() +"\n");
+			dataWriter.writeRaw("predicted VerbNet role counts:\t" + statistics.getRoleCounts().toString() +"\n");
+			dataWriter.close();
+			// in a checkpointed run, the CheckpointCommitter stores the counts of the committed documents
+			if (checkpointStatistics == null) {
+				statistics.store(SrlStatistics.statsFile(outputFile));
+			}
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * A failed run does not complete the collection. Release the shared
+	 * writers anyway, so that the buffered log records and feature tuples
+	 * are not lost and the counts so far are stored. A checkpointed run
+	 * keeps only the counts stored by the CheckpointCommitter, those of the
+	 * documents it committed.
+	 */
+	@Override
+	public void destroy() {
+		if (!completed && statistics != null) {
+			completed = true;
+			if (featureWriter != null) {
+				try {
+					featureWriter.release();
+				} catch (IOException e) {
+					getLogger().log(Level.WARNING, "Could not write the feature file " +featureFile, e);
+				}
+			}
+			try {
+				if (checkpointStatistics != null) {
+					checkpointStatistics.release();
+				}
+				if (statistics.release()) {
+					dataWriter.close();
+					if (checkpointStatistics == null) {
+						statistics.store(SrlStatistics.statsFile(outputFile));
+					}
+				} else {
+					dataWriter.flush();
+				}
+			} catch (IOException e) {
+				getLogger().log(Level.WARNING, "Could not write the SRL log " +outputFile, e);
+			}
+		}
+		super.destroy();
+	}
+
 	
 	/*
 	 * 
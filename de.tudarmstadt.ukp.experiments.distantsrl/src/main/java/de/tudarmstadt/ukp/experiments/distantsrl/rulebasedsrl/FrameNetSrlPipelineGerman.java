@@ -20,6 +20,8 @@ package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
 
 import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
 import static org.apache.uima.fit.factory.CollectionReaderFactory.createReaderDescription;
+import static org.apache.uima.fit.factory.ConfigurationParameterFactory.setParameter;
+import static org.apache.uima.fit.factory.ExternalResourceFactory.bindResource;
 import static org.apache.uima.fit.factory.ExternalResourceFactory.createExternalResourceDescription;
 
 import java.io.File;
@@ -28,18 +30,26 @@ import java.io.IOException;
 import org.apache.uima.UIMAException;
 import org.apache.uima.analysis_engine.AnalysisEngineDescription;
 import org.apache.uima.collection.CollectionReaderDescription;
-import org.apache.uima.fit.pipeline.SimplePipeline;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.component.NoOpAnnotator;
 import org.apache.uima.resource.ExternalResourceDescription;
+import org.apache.uima.resource.ResourceInitializationException;
 
 import de.tudarmstadt.ukp.dkpro.core.api.io.ResourceCollectionReaderBase;
-import de.tudarmstadt.ukp.dkpro.core.api.resources.CompressionMethod;
 import de.tudarmstadt.ukp.dkpro.core.api.resources.ResourceObjectProviderBase;
 import de.tudarmstadt.ukp.dkpro.core.io.imscwb.ImsCwbReader;
-import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiReader;
-import de.tudarmstadt.ukp.dkpro.core.io.xmi.XmiWriter;
 import de.tudarmstadt.ukp.dkpro.core.stanfordnlp.StanfordNamedEntityRecognizer;
 import de.tudarmstadt.ukp.dkpro.core.stanfordnlp.StanfordParser;
 import de.tudarmstadt.ukp.dkpro.core.tokit.GermanSeparatedParticleAnnotator;
+import de.tudarmstadt.ukp.experiments.distantsrl.io.CheckpointCommitter;
+import de.tudarmstadt.ukp.experiments.distantsrl.io.PrefetchingXmiReader;
+import de.tudarmstadt.ukp.experiments.distantsrl.io.SrlOutputFormat;
+import de.tudarmstadt.ukp.experiments.distantsrl.resource.CachingSemanticFieldResource;
+import de.tudarmstadt.ukp.experiments.distantsrl.resource.SemanticFieldDictionaryResource;
+import de.tudarmstadt.ukp.experiments.distantsrl.utils.CheckpointManifest;
+import de.tudarmstadt.ukp.experiments.distantsrl.utils.CorpusShards;
+import de.tudarmstadt.ukp.experiments.distantsrl.utils.PipelineMetrics;
+import de.tudarmstadt.ukp.experiments.distantsrl.utils.StagedPipeline;
 import de.tudarmstadt.ukp.uby.resource.UbyResource;
 import de.tudarmstadt.ukp.uby.resource.UbySemanticFieldResource;
 import de.tudarmstadt.ukp.uby.uima.annotator.UbySemanticFieldAnnotator;
@@ -64,10 +74,95 @@ public class FrameNetSrlPipelineGerman {
 
     public static String outputFileBase= "/home/user/srl_xmis/compressed_sdewac/";
 
+    // number of worker threads, each with its own copy of the engine chain;
+    // the SemLink data and the srlLogFile statistics are shared between them
+    public static int numThreads = 1;
 
+    // format of the labeled documents, e.g. -Dsrl.outputFormat=XMI_GZIP
+    public static SrlOutputFormat outputFormat = SrlOutputFormat.valueOf(System.getProperty("srl.outputFormat", "XMI_BZIP2"));
+
+    // H2 database that keeps the semantic field lookups across runs, e.g.
+    // -Dsrl.semanticFieldCache=jdbc:h2:file:semfieldCache; in memory only if empty
+    public static String semanticFieldCacheUrl = System.getProperty("srl.semanticFieldCache", "");
+
+    // semantic field dictionary written by the SemanticFieldDictionaryExporter,
+    // e.g. -Dsrl.semanticFieldDictionary=semfields-de.dict; replaces the UBY database if set
+    public static String semanticFieldDictionary = System.getProperty("srl.semanticFieldDictionary", "");
+
+    // look up the lemma/POS pairs that are not in the semantic field dictionary in UBY instead
+    // of failing, e.g. -Dsrl.semanticFieldFallback=true
+    public static boolean semanticFieldFallback = Boolean.getBoolean("srl.semanticFieldFallback");
+
+    // look up semantic fields in the role annotator, only for the dependencies of
+    // sense-tagged targets, instead of annotating every token, e.g. -Dsrl.lazySemanticFields=true
+    public static boolean lazySemanticFields = Boolean.getBoolean("srl.lazySemanticFields");
+
+    // hide the sentences without a sense-tagged target from NER and parser, they are
+    // indexed again before the writer, e.g. -Dsrl.skipUntaggedSentences=true
+    public static boolean skipUntaggedSentences = Boolean.getBoolean("srl.skipUntaggedSentences");
+
+    // H2 database with the parser and NER output of sentences seen before, looked up
+    // by the sentence tokens and POS tags, e.g. -Dsrl.parseCache=jdbc:h2:file:parseCache
+    public static String parseCacheUrl = System.getProperty("srl.parseCache", "");
+
+    // writes the rule inputs of all dependencies of sense-tagged targets to this file, to label
+    // them again with the RoleRelabeler after rule changes, e.g. -Dsrl.featureFile=features.sft.gz
+    public static String featureFile = System.getProperty("srl.featureFile", "");
+
+    // per-stage latencies, throughput, CAS sizes and UBY queries, written every srl.metricsInterval
+    // seconds as JSON (or CSV for a .csv name), e.g. -Dsrl.metrics=metrics.json -Dsrl.metricsJmx=true
+    public static String metricsFile = System.getProperty("srl.metrics", "");
+    public static long metricsInterval = Long.getLong("srl.metricsInterval", 60);
+    public static boolean metricsJmx = Boolean.getBoolean("srl.metricsJmx");
+
+    // journals the completed inputs in checkpoint.tsv in the output location and skips them when
+    // the run is started again, e.g. -Dsrl.checkpoint=true; needs a per-document output format.
+    // Each attempt writes its log, statistics and feature file to run-0, run-1, ... in the output
+    // location, the statistics of all attempts are merged at the end
+    public static boolean checkpoint = Boolean.getBoolean("srl.checkpoint");
+
+    // runs reader, annotators and writer as stages connected by queues of this size, so that
+    // reading, annotating and writing overlap (see StagedPipeline), e.g. -Dsrl.queueSize=16
+    public static int queueSize = Integer.getInteger("srl.queueSize", 0);
+
+    // identifies the parser and NER models in the parse cache, change it with the models
+    public static final String PARSE_CACHE_CONFIGURATION = "de stanford-parser default stanford-ner default";
+
+
+	/**
+	 * Arguments, all optional: sourceLocation outputLocation [numThreads [shard]],
+	 * where shard is "index/count", e.g. "3/16", to process only one shard of
+	 * the corpus (see {@link CorpusShards} and {@link ShardedSrlRunner}).
+	 */
 	public static void main(String[] args)
 		    throws UIMAException, IOException
 		{
+		if (args.length >= 2) {
+			sourceLocationBase = args[0];
+			outputFileBase = args[1];
+		}
+		if (args.length >= 3) {
+			numThreads = Integer.parseInt(args[2]);
+		}
+		String[] patterns = new String [] {"*.xmi.bz2"};
+		if (args.length >= 4) {
+			int[] shard = CorpusShards.parseShard(args[3]);
+			patterns = CorpusShards.patterns(new File(sourceLocationBase), ".xmi.bz2", shard[0], shard[1]);
+			if (patterns.length == 0) {
+				System.err.println("No input files in shard " +args[3]);
+				return;
+			}
+		}
+		new File(outputFileBase).mkdirs();
+		if (checkpoint && !outputFormat.isPerDocument()) {
+			System.err.println("Checkpoints need a per-document output format, not " +outputFormat);
+			return;
+		}
+		String checkpointManifest = new File(outputFileBase, CheckpointManifest.FILE_NAME).getPath();
+		// a resumed run must not overwrite the log, statistics and features of the earlier attempts
+		File runOutput = checkpoint ? CheckpointManifest.createAttemptDirectory(new File(outputFileBase)) : new File(outputFileBase);
+		String logFile = new File(runOutput, ShardedSrlRunner.LOG_FILE).getPath();
+		String runFeatureFile = checkpoint && !featureFile.isEmpty() ? new File(runOutput, new File(featureFile).getName()).getPath() : featureFile;
 		
 //       CollectionReaderDescription reader = createReaderDescription(
 //                ImsCwbReader.class,
@@ -80,10 +175,13 @@ public class FrameNetSrlPipelineGerman {
 	    // this assumes that the following preprocessing has been performed:
 	    // tokenizing, sentence splitting, POS-tagging, lemmatization, sense tagging with FrameNet senses
        CollectionReaderDescription reader = createReaderDescription(
-               XmiReader.class,
+               PrefetchingXmiReader.class,
                ResourceCollectionReaderBase.PARAM_SOURCE_LOCATION, sourceLocationBase,
-               ResourceCollectionReaderBase.PARAM_PATTERNS, new String [] {"*.xmi.bz2"}
+               ResourceCollectionReaderBase.PARAM_PATTERNS, patterns
                );
+       if (checkpoint) {
+       	setParameter(reader, PrefetchingXmiReader.PARAM_CHECKPOINT_MANIFEST, checkpointManifest);
+       }
 
 		
        AnalysisEngineDescription separatedParticleAnnotator = createEngineDescription(GermanSeparatedParticleAnnotator.class);
@@ -91,21 +189,7 @@ public class FrameNetSrlPipelineGerman {
        AnalysisEngineDescription ner = createEngineDescription(StanfordNamedEntityRecognizer.class, 
 	                StanfordNamedEntityRecognizer.PARAM_LANGUAGE, "de");
       		
-       ExternalResourceDescription ubyResource = createExternalResourceDescription(
-	                UbyResource.class,
-	                UbyResource.PARAM_MODEL_LOCATION, ResourceObjectProviderBase.NOT_REQUIRED,
-	                UbyResource.PARAM_URL, DB_URL,
-	                UbyResource.PARAM_DRIVER, DB_DRIVER,
-	                UbyResource.PARAM_DIALECT, DB_DRIVER_NAME,
-	                UbyResource.PARAM_USERNAME, DB_USERNAME,
-	                UbyResource.PARAM_PASSWORD, DB_PASSWORD);
-	        
-       AnalysisEngineDescription semanticFieldAnnotator = 
-	    	        createEngineDescription(UbySemanticFieldAnnotator.class,
-	    	                UbySemanticFieldAnnotator.PARAM_UBY_SEMANTIC_FIELD_RESOURCE,    	           
-	    	                createExternalResourceDescription(UbySemanticFieldResource.class,
-	    	                		UbySemanticFieldResource.PARAM_LANGUAGE, "de",
-	    	                		UbySemanticFieldResource.RES_UBY, ubyResource));
+       AnalysisEngineDescription semanticFieldAnnotator = lazySemanticFields ? createEngineDescription(NoOpAnnotator.class) : createSemanticFieldAnnotator();
 
 	        
        AnalysisEngineDescription parser = createEngineDescription(StanfordParser.class,
@@ -118,24 +202,109 @@ public class FrameNetSrlPipelineGerman {
 	
 		    AnalysisEngineDescription semanticRoleAnnotator = 
     		createEngineDescription(FrameNetRoleAnnotatorGerman.class,
-    				FrameNetRoleAnnotatorGerman.PARAM_OUTPUT_FILE, outputFileBase+"/srlLogFile.log",
+    				FrameNetRoleAnnotatorGerman.PARAM_OUTPUT_FILE, logFile,
     				FrameNetRoleAnnotatorGerman.PARAM_SEMLINK_LOCATION,semLinkLocation);
+		    if (lazySemanticFields) {
+		    	bindResource(semanticRoleAnnotator, FrameNetRoleAnnotatorGerman.RES_SEMANTIC_FIELD_PROVIDER, createSemanticFieldResource());
+		    }
+		    if (!featureFile.isEmpty()) {
+		    	setParameter(semanticRoleAnnotator, FrameNetRoleAnnotatorGerman.PARAM_FEATURE_FILE, runFeatureFile);
+		    }
+		    if (checkpoint) {
+		    	setParameter(semanticRoleAnnotator, FrameNetRoleAnnotatorGerman.PARAM_CHECKPOINT, true);
+		    }
 	        
-		    AnalysisEngineDescription srlwriter = createEngineDescription(XmiWriter.class,
-            		XmiWriter.PARAM_TARGET_LOCATION, outputFileBase+"/xmi_rl_input/", 
-            		XmiWriter.PARAM_USE_DOCUMENT_ID,true,
-            		XmiWriter.PARAM_ESCAPE_DOCUMENT_ID,false,
-            		XmiWriter.PARAM_COMPRESSION, CompressionMethod.BZIP2
-            		);
+		    AnalysisEngineDescription srlwriter = outputFormat.createWriterDescription(outputFileBase+"/xmi_rl_input/");
+		    AnalysisEngineDescription checkpointCommitter = checkpoint
+		    		? createEngineDescription(CheckpointCommitter.class, CheckpointCommitter.PARAM_MANIFEST, checkpointManifest,
+		    				CheckpointCommitter.PARAM_STATISTICS_LOG, logFile)
+		    		: createEngineDescription(NoOpAnnotator.class);
 	                                  
-	        SimplePipeline.runPipeline(reader, 
+	        AnalysisEngineDescription sentenceFilter = createEngineDescription(skipUntaggedSentences ? TargetSentenceFilter.class : NoOpAnnotator.class);
+	        AnalysisEngineDescription sentenceRestorer = createEngineDescription(skipUntaggedSentences ? TargetSentenceRestorer.class : NoOpAnnotator.class);
+	        AnalysisEngineDescription parseCacheLookup = createParseCacheEngine(ParseCacheLookup.class);
+	        AnalysisEngineDescription parseCacheStore = createParseCacheEngine(ParseCacheStore.class);
+	                                  
+	        StagedPipeline.runPipeline(numThreads, queueSize,
+	        		PipelineMetrics.create(metricsFile, metricsInterval, metricsJmx), reader,
+	        		new AnalysisEngineDescription[] { srlwriter, checkpointCommitter },
 	        		separatedParticleAnnotator, 
 	        		semanticFieldAnnotator,
+	        		sentenceFilter,
+	        		parseCacheLookup,
 	        		ner, 
 	        		parser,
+	        		parseCacheStore,
 	        		semanticRoleAnnotator,
-	        		srlwriter
+	        		sentenceRestorer
 	                );
+	        if (checkpoint) {
+	        	ShardedSrlRunner.merge(new File(outputFileBase), CheckpointManifest.ATTEMPT_PREFIX);
+	        }
+
+	}
+
+	/**
+	 * The semantic field resource, reading from the dictionary file
+	 * {@link #semanticFieldDictionary} if set, otherwise from the embedded UBY
+	 * database behind a {@link CachingSemanticFieldResource}.
+	 * With {@link #semanticFieldFallback}, the dictionary passes unknown
+	 * lemma/POS pairs on to the UBY resource.
+	 */
+	public static ExternalResourceDescription createSemanticFieldResource()
+		throws ResourceInitializationException
+	{
+		ExternalResourceDescription semanticFieldResource;
+		if (!semanticFieldDictionary.isEmpty() && !semanticFieldFallback) {
+			semanticFieldResource = createExternalResourceDescription(SemanticFieldDictionaryResource.class,
+					SemanticFieldDictionaryResource.PARAM_DICTIONARY_LOCATION, semanticFieldDictionary);
+		} else {
+			ExternalResourceDescription ubyResource = createExternalResourceDescription(
+					UbyResource.class,
+					UbyResource.PARAM_MODEL_LOCATION, ResourceObjectProviderBase.NOT_REQUIRED,
+					UbyResource.PARAM_URL, DB_URL,
+					UbyResource.PARAM_DRIVER, DB_DRIVER,
+					UbyResource.PARAM_DIALECT, DB_DRIVER_NAME,
+					UbyResource.PARAM_USERNAME, DB_USERNAME,
+					UbyResource.PARAM_PASSWORD, DB_PASSWORD);
+			semanticFieldResource = createExternalResourceDescription(CachingSemanticFieldResource.class,
+					CachingSemanticFieldResource.PARAM_LANGUAGE, "de",
+					CachingSemanticFieldResource.PARAM_DISK_CACHE_URL, semanticFieldCacheUrl,
+					CachingSemanticFieldResource.RES_DELEGATE,
+					createExternalResourceDescription(UbySemanticFieldResource.class,
+							UbySemanticFieldResource.PARAM_LANGUAGE, "de",
+							UbySemanticFieldResource.RES_UBY, ubyResource));
+			if (!semanticFieldDictionary.isEmpty()) {
+				semanticFieldResource = createExternalResourceDescription(SemanticFieldDictionaryResource.class,
+						SemanticFieldDictionaryResource.PARAM_DICTIONARY_LOCATION, semanticFieldDictionary,
+						SemanticFieldDictionaryResource.RES_DELEGATE, semanticFieldResource);
+			}
+		}
+		return semanticFieldResource;
+	}
+
+	/**
+	 * The semantic field annotator, using {@link #createSemanticFieldResource()}.
+	 */
+	public static AnalysisEngineDescription createSemanticFieldAnnotator()
+		throws ResourceInitializationException
+	{
+		return createEngineDescription(UbySemanticFieldAnnotator.class,
+				UbySemanticFieldAnnotator.PARAM_UBY_SEMANTIC_FIELD_RESOURCE, createSemanticFieldResource());
+	}
 
+	/**
+	 * A {@link ParseCacheLookup} or {@link ParseCacheStore} for {@link #parseCacheUrl},
+	 * or a no-op if the parse cache is not used.
+	 */
+	private static AnalysisEngineDescription createParseCacheEngine(Class<? extends JCasAnnotator_ImplBase> engine)
+		throws ResourceInitializationException
+	{
+		if (parseCacheUrl.isEmpty()) {
+			return createEngineDescription(NoOpAnnotator.class);
+		}
+		return createEngineDescription(engine,
+				ParseCacheLookup.PARAM_CACHE_URL, parseCacheUrl,
+				ParseCacheLookup.PARAM_CONFIGURATION, PARSE_CACHE_CONFIGURATION);
 	}
 }
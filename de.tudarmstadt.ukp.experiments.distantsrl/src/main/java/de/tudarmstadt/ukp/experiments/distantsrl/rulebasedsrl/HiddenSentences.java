@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.uima.cas.CAS;
+import org.apache.uima.jcas.JCas;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+
+/**
+ * Sentences removed from the index of a CAS so that the sentence-wise engines
+ * skip them, kept until they are indexed again. Used by the
+ * {@link TargetSentenceFilter} and the {@link ParseCacheLookup}; the sentences
+ * only survive within one process. The sentences are kept by the engine that
+ * hid them, so that each restores only its own: the {@link ParseCacheStore}
+ * the cache hits, the {@link TargetSentenceRestorer} the untagged sentences.
+ *
+ */
+final class HiddenSentences {
+
+    private static final Map<CAS, Hidden> HIDDEN = Collections.synchronizedMap(new WeakHashMap<CAS, Hidden>());
+
+    private HiddenSentences() {
+    }
+
+    /**
+     * Remove the sentences from the index, in addition to the ones already
+     * hidden in this CAS.
+     *
+     * @param owner the engine that hides the sentences
+     */
+    static void hide(JCas jcas, Class<?> owner, Collection<Sentence> sentences) {
+        if (sentences.isEmpty()) {
+            return;
+        }
+        for (Sentence sentence : sentences) {
+            sentence.removeFromIndexes();
+        }
+        synchronized (HIDDEN) {
+            Hidden hidden = HIDDEN.get(jcas.getCas());
+            if (hidden == null || hidden.documentText != jcas.getDocumentText()) {
+                // nothing hidden yet, or left over from a previous document of the CAS
+                hidden = new Hidden(jcas.getDocumentText());
+                HIDDEN.put(jcas.getCas(), hidden);
+            }
+            List<Sentence> owned = hidden.sentences.get(owner);
+            if (owned == null) {
+                owned = new ArrayList<Sentence>();
+                hidden.sentences.put(owner, owned);
+            }
+            owned.addAll(sentences);
+        }
+    }
+
+    /**
+     * Index the sentences of the CAS that the engine hid again.
+     *
+     * @return the number of sentences restored
+     */
+    static int restore(JCas jcas, Class<?> owner) {
+        List<Sentence> owned;
+        synchronized (HIDDEN) {
+            Hidden hidden = HIDDEN.get(jcas.getCas());
+            if (hidden == null || hidden.documentText != jcas.getDocumentText()) {
+                HIDDEN.remove(jcas.getCas());
+                return 0;
+            }
+            owned = hidden.sentences.remove(owner);
+            if (hidden.sentences.isEmpty()) {
+                HIDDEN.remove(jcas.getCas());
+            }
+        }
+        if (owned == null) {
+            return 0;
+        }
+        for (Sentence sentence : owned) {
+            sentence.addToIndexes();
+        }
+        return owned.size();
+    }
+
+    private static class Hidden {
+        // identifies the document, the CAS is reused for the next one
+        final String documentText;
+        final Map<Class<?>, List<Sentence>> sentences = new HashMap<Class<?>, List<Sentence>>();
+
+        Hidden(String documentText) {
+            this.documentText = documentText;
+        }
+    }
+}
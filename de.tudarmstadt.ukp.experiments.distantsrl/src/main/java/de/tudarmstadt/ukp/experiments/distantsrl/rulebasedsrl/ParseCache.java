@@ -0,0 +1,369 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.cas.Type;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.jcas.cas.FSArray;
+import org.apache.uima.jcas.tcas.Annotation;
+
+import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.constituent.Constituent;
+import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.dependency.Dependency;
+
+/**
+ * Content-addressed cache of the parser and NER output of single sentences,
+ * in an embedded H2 database.
+ *
+ * The key is a SHA-1 hash of a configuration string (parser variant, models)
+ * and the text and POS tags of the sentence tokens. The value holds the
+ * named entities, constituents and dependencies of the sentence with token
+ * indexes instead of character offsets, so it can be applied to the same
+ * sentence anywhere in any document.
+ *
+ */
+class ParseCache implements Closeable {
+
+    // part of the key, change it when the encoding changes
+    private static final String CODEC_VERSION = "1";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String TABLE = "PARSE_CACHE";
+
+    private final Connection connection;
+    private final PreparedStatement select;
+    private final PreparedStatement insert;
+
+    ParseCache(String url) throws SQLException {
+        try {
+            Class.forName("org.h2.Driver");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException(e);
+        }
+        connection = DriverManager.getConnection(url);
+        Statement create = connection.createStatement();
+        try {
+            create.execute("CREATE TABLE IF NOT EXISTS " + TABLE
+                    + " (HASH BINARY(20) PRIMARY KEY, DATA BLOB NOT NULL)");
+        } finally {
+            create.close();
+        }
+        select = connection.prepareStatement("SELECT DATA FROM " + TABLE + " WHERE HASH = ?");
+        insert = connection.prepareStatement("MERGE INTO " + TABLE + " (HASH, DATA) VALUES (?, ?)");
+    }
+
+    synchronized byte[] get(byte[] hash) throws SQLException {
+        select.setBytes(1, hash);
+        ResultSet result = select.executeQuery();
+        try {
+            return result.next() ? result.getBytes(1) : null;
+        } finally {
+            result.close();
+        }
+    }
+
+    synchronized void put(byte[] hash, byte[] data) throws SQLException {
+        insert.setBytes(1, hash);
+        insert.setBytes(2, data);
+        insert.executeUpdate();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+    }
+
+    static byte[] hash(String configuration, List<Token> tokens) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update((CODEC_VERSION + "\u0000" + configuration).getBytes(UTF8));
+        for (Token token : tokens) {
+            digest.update((byte) 0);
+            digest.update(token.getCoveredText().getBytes(UTF8));
+            digest.update((byte) 1);
+            if (token.getPos() != null && token.getPos().getPosValue() != null) {
+                digest.update(token.getPos().getPosValue().getBytes(UTF8));
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Encode the named entities, constituents and dependencies of a sentence.
+     */
+    static byte[] encode(JCas jcas, Sentence sentence, List<Token> tokens) throws IOException {
+        Map<Token, Integer> tokenIndex = new HashMap<Token, Integer>();
+        for (int i = 0; i < tokens.size(); i++) {
+            tokenIndex.put(tokens.get(i), i);
+        }
+        List<Constituent> constituents = JCasUtil.selectCovered(jcas, Constituent.class, sentence);
+        Map<Annotation, Integer> constituentIndex = new HashMap<Annotation, Integer>();
+        for (int i = 0; i < constituents.size(); i++) {
+            constituentIndex.put(constituents.get(i), i);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(tokens.size());
+
+        List<NamedEntity> entities = JCasUtil.selectCovered(jcas, NamedEntity.class, sentence);
+        out.writeInt(entities.size());
+        for (NamedEntity ne : entities) {
+            out.writeUTF(ne.getType().getName());
+            writeSpan(out, tokens, ne);
+            writeNullable(out, ne.getValue());
+        }
+
+        out.writeInt(constituents.size());
+        for (Constituent constituent : constituents) {
+            out.writeUTF(constituent.getType().getName());
+            writeSpan(out, tokens, constituent);
+            writeNullable(out, constituent.getConstituentType());
+            writeNullable(out, constituent.getSyntacticFunction());
+            Integer parent = constituent.getParent() == null ? null : constituentIndex.get(constituent.getParent());
+            out.writeInt(parent == null ? -1 : parent);
+            FSArray children = constituent.getChildren();
+            int childCount = children == null ? 0 : children.size();
+            out.writeInt(childCount);
+            for (int i = 0; i < childCount; i++) {
+                // constituents as their index, tokens as -(index + 1)
+                Object child = children.get(i);
+                Integer index = constituentIndex.get(child);
+                if (index == null) {
+                    index = -(indexOf(tokenIndex, child) + 1);
+                }
+                out.writeInt(index);
+            }
+        }
+
+        List<Dependency> dependencies = JCasUtil.selectCovered(jcas, Dependency.class, sentence);
+        out.writeInt(dependencies.size());
+        for (Dependency dep : dependencies) {
+            out.writeUTF(dep.getType().getName());
+            out.writeInt(indexOf(tokenIndex, dep.getGovernor()));
+            out.writeInt(indexOf(tokenIndex, dep.getDependent()));
+            writeNullable(out, dep.getDependencyType());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Add the annotations of an encoded sentence to the CAS.
+     *
+     * @throws IOException
+     *             if the data does not fit the sentence or type system; nothing
+     *             is added then
+     */
+    static void decode(JCas jcas, List<Token> tokens, byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (in.readInt() != tokens.size()) {
+            throw new IOException("Token count does not match");
+        }
+        // everything is read and checked into plain arrays before the first
+        // feature structure is created in the CAS
+
+        int entityCount = in.readInt();
+        Type[] entityTypes = new Type[entityCount];
+        Token[][] entitySpans = new Token[entityCount][];
+        String[] entityValues = new String[entityCount];
+        for (int i = 0; i < entityCount; i++) {
+            entityTypes[i] = type(jcas, in.readUTF());
+            entitySpans[i] = new Token[] { token(tokens, in.readInt()), token(tokens, in.readInt()) };
+            entityValues[i] = readNullable(in);
+        }
+
+        int constituentCount = in.readInt();
+        Type[] constituentTypes = new Type[constituentCount];
+        Token[][] constituentSpans = new Token[constituentCount][];
+        String[] constituentTypeValues = new String[constituentCount];
+        String[] syntacticFunctions = new String[constituentCount];
+        int[] parents = new int[constituentCount];
+        int[][] children = new int[constituentCount][];
+        for (int i = 0; i < constituentCount; i++) {
+            constituentTypes[i] = type(jcas, in.readUTF());
+            constituentSpans[i] = new Token[] { token(tokens, in.readInt()), token(tokens, in.readInt()) };
+            constituentTypeValues[i] = readNullable(in);
+            syntacticFunctions[i] = readNullable(in);
+            parents[i] = in.readInt();
+            if (parents[i] >= 0) {
+                checkConstituent(constituentCount, parents[i]);
+            }
+            children[i] = new int[in.readInt()];
+            for (int j = 0; j < children[i].length; j++) {
+                children[i][j] = in.readInt();
+                if (children[i][j] >= 0) {
+                    checkConstituent(constituentCount, children[i][j]);
+                } else {
+                    token(tokens, -children[i][j] - 1);
+                }
+            }
+        }
+
+        int dependencyCount = in.readInt();
+        Type[] dependencyTypes = new Type[dependencyCount];
+        Token[] governors = new Token[dependencyCount];
+        Token[] dependents = new Token[dependencyCount];
+        String[] dependencyTypeValues = new String[dependencyCount];
+        for (int i = 0; i < dependencyCount; i++) {
+            dependencyTypes[i] = type(jcas, in.readUTF());
+            governors[i] = token(tokens, in.readInt());
+            dependents[i] = token(tokens, in.readInt());
+            dependencyTypeValues[i] = readNullable(in);
+        }
+
+        List<Annotation> created = new ArrayList<Annotation>();
+        for (int i = 0; i < entityCount; i++) {
+            NamedEntity ne = (NamedEntity) create(jcas, entityTypes[i], entitySpans[i][0], entitySpans[i][1]);
+            ne.setValue(entityValues[i]);
+            created.add(ne);
+        }
+
+        Constituent[] constituents = new Constituent[constituentCount];
+        for (int i = 0; i < constituentCount; i++) {
+            constituents[i] = (Constituent) create(jcas, constituentTypes[i], constituentSpans[i][0],
+                    constituentSpans[i][1]);
+            constituents[i].setConstituentType(constituentTypeValues[i]);
+            constituents[i].setSyntacticFunction(syntacticFunctions[i]);
+        }
+        for (int i = 0; i < constituentCount; i++) {
+            if (parents[i] >= 0) {
+                constituents[i].setParent(constituents[parents[i]]);
+            }
+            FSArray array = new FSArray(jcas, children[i].length);
+            for (int j = 0; j < children[i].length; j++) {
+                int child = children[i][j];
+                if (child >= 0) {
+                    array.set(j, constituents[child]);
+                } else {
+                    Token token = tokens.get(-child - 1);
+                    token.setParent(constituents[i]);
+                    array.set(j, token);
+                }
+            }
+            constituents[i].setChildren(array);
+            created.add(constituents[i]);
+        }
+
+        for (int i = 0; i < dependencyCount; i++) {
+            Dependency dep = (Dependency) create(jcas, dependencyTypes[i], dependents[i], dependents[i]);
+            dep.setGovernor(governors[i]);
+            dep.setDependent(dependents[i]);
+            dep.setDependencyType(dependencyTypeValues[i]);
+            created.add(dep);
+        }
+
+        for (Annotation annotation : created) {
+            annotation.addToIndexes();
+        }
+    }
+
+    private static Type type(JCas jcas, String typeName) throws IOException {
+        Type type = jcas.getTypeSystem().getType(typeName);
+        if (type == null) {
+            throw new IOException("Unknown type " + typeName);
+        }
+        return type;
+    }
+
+    private static Annotation create(JCas jcas, Type type, Token first, Token last) {
+        return (Annotation) jcas.getCas().createAnnotation(type, first.getBegin(), last.getEnd());
+    }
+
+    private static Token token(List<Token> tokens, int index) throws IOException {
+        if (index < 0 || index >= tokens.size()) {
+            throw new IOException("Token index out of range: " + index);
+        }
+        return tokens.get(index);
+    }
+
+    private static void checkConstituent(int constituentCount, int index) throws IOException {
+        if (index < 0 || index >= constituentCount) {
+            throw new IOException("Constituent index out of range: " + index);
+        }
+    }
+
+    private static int indexOf(Map<Token, Integer> tokenIndex, Object token) throws IOException {
+        Integer index = tokenIndex.get(token);
+        if (index == null) {
+            throw new IOException("Annotation refers to a token outside the sentence");
+        }
+        return index;
+    }
+
+    private static void writeSpan(DataOutputStream out, List<Token> tokens, Annotation annotation)
+        throws IOException {
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < tokens.size(); i++) {
+            Token token = tokens.get(i);
+            if (first < 0 && token.getBegin() >= annotation.getBegin()) {
+                first = i;
+            }
+            if (token.getEnd() <= annotation.getEnd()) {
+                last = i;
+            }
+        }
+        if (first < 0 || last < first) {
+            throw new IOException("Annotation does not cover a token");
+        }
+        out.writeInt(first);
+        out.writeInt(last);
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
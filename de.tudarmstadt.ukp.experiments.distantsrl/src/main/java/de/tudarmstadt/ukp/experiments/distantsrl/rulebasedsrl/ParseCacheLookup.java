@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.uima.UimaContext;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.descriptor.ConfigurationParameter;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.resource.ResourceInitializationException;
+import org.apache.uima.util.Level;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+
+/**
+ * Adds the cached parser and NER output to the sentences found in the
+ * {@link ParseCache} and hides these sentences from the following parser and
+ * named entity recognizer. A {@link ParseCacheStore} after them stores the
+ * output for the remaining sentences and indexes the hidden ones again.
+ *
+ */
+public class ParseCacheLookup extends JCasAnnotator_ImplBase {
+
+    public static final String PARAM_CACHE_URL = "cacheUrl";
+    @ConfigurationParameter(name = PARAM_CACHE_URL, mandatory = true,
+            description = "JDBC URL of the H2 cache database, e.g. jdbc:h2:file:parseCache")
+    private String cacheUrl;
+
+    public static final String PARAM_CONFIGURATION = "configuration";
+    @ConfigurationParameter(name = PARAM_CONFIGURATION, mandatory = true,
+            description = "Identifies the parser and NER models, part of the cache key")
+    private String configuration;
+
+    private ParseCache cache;
+    private long hits = 0;
+    private long misses = 0;
+
+    @Override
+    public void initialize(UimaContext aContext) throws ResourceInitializationException {
+        super.initialize(aContext);
+        try {
+            cache = new ParseCache(cacheUrl);
+        } catch (SQLException e) {
+            throw new ResourceInitializationException(e);
+        }
+    }
+
+    @Override
+    public void process(JCas aJCas) throws AnalysisEngineProcessException {
+        List<Sentence> cached = new ArrayList<Sentence>();
+        for (Sentence sentence : JCasUtil.select(aJCas, Sentence.class)) {
+            List<Token> tokens = JCasUtil.selectCovered(Token.class, sentence);
+            byte[] data;
+            try {
+                data = cache.get(ParseCache.hash(configuration, tokens));
+            } catch (SQLException e) {
+                throw new AnalysisEngineProcessException(e);
+            }
+            if (data == null) {
+                misses++;
+                continue;
+            }
+            try {
+                ParseCache.decode(aJCas, tokens, data);
+                cached.add(sentence);
+                hits++;
+            } catch (IOException e) {
+                getLogger().log(Level.FINE, "Unusable cache entry, sentence is parsed again", e);
+                misses++;
+            }
+        }
+        HiddenSentences.hide(aJCas, ParseCacheLookup.class, cached);
+    }
+
+    @Override
+    public void collectionProcessComplete() throws AnalysisEngineProcessException {
+        getLogger().log(Level.INFO, "Parse cache hits: " + hits + ", misses: " + misses);
+        super.collectionProcessComplete();
+    }
+
+    @Override
+    public void destroy() {
+        try {
+            cache.close();
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Unable to close the parse cache", e);
+        }
+        super.destroy();
+    }
+}
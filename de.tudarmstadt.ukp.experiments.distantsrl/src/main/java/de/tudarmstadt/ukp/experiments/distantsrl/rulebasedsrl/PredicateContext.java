@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.dkpro.wsd.type.Sense;
+import de.tudarmstadt.ukp.dkpro.wsd.type.WSDItem;
+
+/**
+ * A sense-tagged target verb of a sentence: its lemma, FrameNet frame and the
+ * span of its sense annotation.
+ *
+ * The contexts are resolved once per sentence from the WSDItem and Sense
+ * annotations, a sentence can have several of them.
+ *
+ * <pre>
+ * WSDItem
+ *    begin: 77
+ *    end: 85
+ *    subjectOfDisambiguation: "achieve"
+ *    id: "achieve#2870"
+ *    pos: "VERB"
+ * Sense
+ *    begin: 77
+ *    end: 85
+ *    id: "achieve#2870%%achieve%Accomplishment%12306"
+ * </pre>
+ *
+ */
+public class PredicateContext {
+
+    private final String target;
+    private final String fnFrame;
+    private final String senseId;
+    private final int begin;
+    private final int end;
+
+    public PredicateContext(String target, String fnFrame, String senseId, int begin, int end) {
+        this.target = target;
+        this.fnFrame = fnFrame;
+        this.senseId = senseId;
+        this.begin = begin;
+        this.end = end;
+    }
+
+    /**
+     * Resolve the targets of a sentence. WSDItems are paired with the Sense of
+     * the same span, or else with the Sense at the same position. Targets
+     * whose sense id cannot be parsed are skipped.
+     *
+     * @param stripSalsaSuffix map SALSA frames like "Frame-salsa" to "Frame"
+     */
+    public static List<PredicateContext> select(JCas jcas, Sentence sentence, boolean stripSalsaSuffix) {
+        List<WSDItem> wsdItems = JCasUtil.selectCovered(jcas, WSDItem.class, sentence);
+        if (wsdItems.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Sense> senses = JCasUtil.selectCovered(jcas, Sense.class, sentence);
+        List<PredicateContext> contexts = new ArrayList<PredicateContext>(wsdItems.size());
+        for (int i = 0; i < wsdItems.size(); i++) {
+            WSDItem wsdItem = wsdItems.get(i);
+            Sense sense = null;
+            for (Sense s : senses) {
+                if (s.getBegin() == wsdItem.getBegin() && s.getEnd() == wsdItem.getEnd()) {
+                    sense = s;
+                    break;
+                }
+            }
+            if (sense == null && i < senses.size()) {
+                sense = senses.get(i);
+            }
+            if (sense == null || wsdItem.getSubjectOfDisambiguation() == null) {
+                continue;
+            }
+            String fnFrame = parseFrame(sense.getId(), stripSalsaSuffix);
+            if (fnFrame == null) {
+                continue;
+            }
+            String target = wsdItem.getSubjectOfDisambiguation().trim();
+            if (target.contains(" ")) { // this is a phrasal verb!
+                target = target.split(" ")[0];
+            }
+            contexts.add(new PredicateContext(target, fnFrame, sense.getId(), sense.getBegin(), sense.getEnd()));
+        }
+        return contexts;
+    }
+
+    /**
+     * @return the frame of a sense id, or null if the id is malformed
+     */
+    static String parseFrame(String fnSenseInfo, boolean stripSalsaSuffix) {
+        // format: id: "achieve#2870%%achieve%Accomplishment%12306"
+        // OLD format: launch#1655_Key.xml~~launch~Shoot_projectiles~5667
+        // OLD format of fnSenseInfo: want~Desiring~6412
+        if (fnSenseInfo == null) {
+            return null;
+        }
+        String[] allInfos = fnSenseInfo.split("%%");
+        if (allInfos.length < 2) {
+            return null;
+        }
+        String[] senseInfos = allInfos[1].split("%");
+        if (senseInfos.length < 2) {
+            return null;
+        }
+        String fnFrame = senseInfos[1].trim();
+        if (stripSalsaSuffix && fnFrame.contains("salsa")) {
+            fnFrame = fnFrame.split("-")[0];
+        }
+        return fnFrame;
+    }
+
+    /**
+     * Find the target a verb dependency belongs to. The governor lemma has to
+     * equal the target; if several targets of the sentence share the lemma,
+     * the one whose sense span contains the governor is taken.
+     *
+     * @return the context, or null if the governor is not a target
+     */
+    public static PredicateContext forGovernor(List<PredicateContext> contexts, Token governor) {
+        if (contexts.isEmpty() || governor.getLemma() == null) {
+            return null;
+        }
+        String lemma = governor.getLemma().getValue();
+        PredicateContext match = null;
+        for (int i = 0; i < contexts.size(); i++) {
+            PredicateContext context = contexts.get(i);
+            if (!context.target.equals(lemma)) {
+                continue;
+            }
+            if (context.begin <= governor.getBegin() && governor.getEnd() <= context.end) {
+                return context;
+            }
+            if (match == null) {
+                match = context;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * @return the target lemma, the first word for phrasal verbs
+     */
+    public String getTarget() {
+        return target;
+    }
+
+    public String getFnFrame() {
+        return fnFrame;
+    }
+
+    public String getSenseId() {
+        return senseId;
+    }
+
+    public int getBegin() {
+        return begin;
+    }
+
+    public int getEnd() {
+        return end;
+    }
+}
@@ -17,10 +17,12 @@
  ******************************************************************************/
 package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
+import static de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.RoleRuleSet.Field.DEPENDENT_POS;
+import static de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.RoleRuleSet.Field.DEP_NE_TAG;
+import static de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.RoleRuleSet.Field.DEP_SEM_FIELD;
+import static de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.RoleRuleSet.Field.GOV_SEM_FIELD;
+import static de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.RoleRuleSet.is;
+import static de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.RoleRuleSet.isNot;
 
 /**
  * @author Judith Eckle-Kohler
@@ -28,17 +30,16 @@ import java.util.List;
  */
 public class RoleInducer {
 	
-    private HashMap<String, HashMap<String, List<String>>> semlinkMapping;
-    private HashMap<String, List<String>> classMapping;
+    private final SemLinkRoleResolver resolver;
 
 	public RoleInducer(String mappingLoc) {
-		semlinkMapping = 
-				de.tudarmstadt.ukp.experiments.distantsrl.utils.RoleMappingUtil.readSemLinkVnFn(mappingLoc + "VN-FNRoleMapping.txt");
-		
-		classMapping = 
-				de.tudarmstadt.ukp.experiments.distantsrl.utils.RoleMappingUtil.readSemLinkClassMapping(mappingLoc + "VN-FNRoleMapping.txt");
+		// both mappings are read in one pass over the SemLink file, or from its snapshot,
+		// once per JVM; all instances share them
+		resolver = SemLinkRoleResolver.getShared(mappingLoc + "VN-FNRoleMapping.txt");
 	}
 	
+	private static final RoleRuleSet RULES = createRules();
+
 	public String labelDependent(String depType, String dependentPos, 
 			String depSemField, String depNeTag, String govSemField) {
 		// predicate info has the form:
@@ -47,205 +48,121 @@ public class RoleInducer {
 		// semlink mapping has the form:
 		// fnframe%vnclass -> (vnrole -> listOfFnroles)
 		
-		String roleLabel = null;
-		
+		// dependencies not covered by any rule get "noRoleLabel", this covers different cases:
+		// - the dependency type is not relevant for argument classification: 
+		// dep, mark, vmod, advcl, tmod, advmod, conj_and, prep, discourse, parataxis
+		// - the dependency type is relevant, but there is no rule yet that covers it, e.g. prep_x
+		return RULES.label(depType, dependentPos, depSemField, depNeTag, govSemField);
+	}
+
+	public static RoleRuleSet getRules() {
+		return RULES;
+	}
+
+	private static RoleRuleSet createRules() {
+		RoleRuleSet rules = new RoleRuleSet();
+
 		// semantic fields of arguments:
-		if (depSemField.equals("location") || depNeTag.equals("location")) {
-			roleLabel = "Location%InitialLocation";
-		} else if (depSemField.equals("time")) {
-			roleLabel = "Time";
-		} else if (depSemField.equals("quantity")) {
-			roleLabel = "Value%Asset";
-						
+		rules.addGlobalRule("Location%InitialLocation", is(DEP_SEM_FIELD, "location"))
+			.addGlobalRule("Location%InitialLocation", is(DEP_NE_TAG, "location"))
+			.addGlobalRule("Time", is(DEP_SEM_FIELD, "time"))
+			.addGlobalRule("Value%Asset", is(DEP_SEM_FIELD, "quantity"));
+
 // **********************************************************************************
-			
-		} else if (depType.equals("prep_with") 
-				&& !depSemField.equals("person") && !depSemField.equals("group")
-				&& !depNeTag.equals("person") && !depNeTag.equals("group")) {
-			roleLabel = "Instrument";
-			
-		} else if (depType.equals("prep_to") 
-				&& !depSemField.equals("person") && !depSemField.equals("group")
-				&& !depNeTag.equals("person") && !depNeTag.equals("group")) {
-			roleLabel = "Destination";			
-		} else if (depType.equals("prep_to")) {
-			roleLabel = "Patient%Co-Patient%Beneficiary"; 
-			
-		} else if (depType.equals("prep_against")) {
-			roleLabel = "Recipient";
-
-		} else if (depType.equals("prep_after")) {
-			roleLabel = "Time";
-		} else if (depType.equals("prepc_after")) {
-			roleLabel = "Time";
-
-		} else if (depType.equals("prep_before") && dependentPos.equals("CARD")) {
-			roleLabel = "Time";			
-		} else if (depType.equals("prepc_before")) {
-			roleLabel = "Time";
-
-		} else if (depType.equals("prep_at") && govSemField.equals("perception") ) {
-			roleLabel = "Stimulus";	
-		} else if (depType.equals("prep_at") && govSemField.equals("possession") ) {
-			roleLabel = "Value%Asset";	
-		} else if (depType.equals("prep_at") && dependentPos.equals("CARD") ) {
-			roleLabel = "Value%Asset";	
-			
-		} else if (depType.equals("prep_at")) {
-			roleLabel = "Location";
-
-		} else if (depType.equals("prep_under") && !govSemField.equals("motion") && !govSemField.equals("stative")) {
-			roleLabel = "Theme%Co-Theme%Topic";
-			
-		} else if (depType.equals("prep_as") && (govSemField.equals("communication") || govSemField.equals("cognition"))) {
-			roleLabel = "Attribute%Predicate";
-
-		} else if (depType.equals("prep_for") 
-				&& !depSemField.equals("person") && !depSemField.equals("group")
-				&& !depNeTag.equals("person") && !depNeTag.equals("group")) {
-			roleLabel = "Cause";
-		} else if (depType.equals("prep_for")) {
-			roleLabel = "Patient%Co-Patient%Beneficiary"; 
-			
-		} else if (depType.equals("prep_on") && govSemField.equals("body")) {
-			roleLabel = "Location";
-		} else if (depType.equals("prep_on") && govSemField.equals("contact")) {
-			roleLabel = "Destination";
-		} else if (depType.equals("prep_on") && govSemField.equals("communication")) {
-			roleLabel = "Time";
-		} else if (depType.equals("prep_on") && !govSemField.equals("motion") && !govSemField.equals("stative")) {
-			roleLabel = "Theme%Co-Theme%Topic";		
-		} else if (depType.equals("prep_on")) {
-			roleLabel = "Location";
-			
-			
-		} else if (depType.equals("prep_from") && govSemField.equals("motion")) {
-			roleLabel = "Source";
-
-		} else if (depType.equals("prep_away_from")) {
-			roleLabel = "Source";
-
-		} else if (depType.equals("prep_through") && govSemField.equals("motion")) {
-			roleLabel = "Location";
-
-		} else if (depType.equals("prep_below") && govSemField.equals("motion")) {
-			roleLabel = "Destination";
-			
-		} else if (depType.equals("prep_into") && govSemField.equals("motion")) {
-			roleLabel = "Destination";
-		} else if (depType.equals("prep_into")) {
-			roleLabel = "Location";
-
-		} else if (depType.equals("prepc_on") && govSemField.equals("cognition")) {
-			roleLabel = "Theme%Co-Theme%Topic";
-
-		} else if (depType.equals("prep_over") && govSemField.equals("communication")) {
-			roleLabel = "Theme%Co-Theme%Topic";
-
-		} else if (depType.equals("prep_in") && dependentPos.equals("NN") && !govSemField.equals("motion")) {
-			roleLabel = "Theme%Co-Theme%Topic";
-		} else if (depType.equals("prep_in") && !govSemField.equals("motion") && !govSemField.equals("stative")) {
-			roleLabel = "Theme%Co-Theme%Topic";		
-		} else if (depType.equals("prep_in") && dependentPos.equals("CARD")) {
-			roleLabel = "Time";
-		} else if (depType.equals("prep_in") && dependentPos.equals("NP")) {
-			roleLabel = "Location";
-		} else if (depType.equals("prep_in")) {
-			roleLabel = "Location";
-			
-		} else if (depType.equals("prep_prior_to") && dependentPos.equals("CARD")) {
-			roleLabel = "Time";
-		} else if (depType.equals("prep_during")) {
-			roleLabel = "Time";
-			
-		} else if (depType.equals("prep_of") && (govSemField.equals("communication") || govSemField.equals("cognition"))) {
-			roleLabel = "Theme%Co-Theme%Topic";
-		} else if (depType.equals("prepc_of")) {
-			roleLabel = "Cause";
-
-		} else if (depType.equals("prep_over") && govSemField.equals("motion")) {
-			roleLabel = "Location";
-
-		} else if (depType.equals("nsubj")) {			
-			if (govSemField.equals("emotion") || govSemField.equals("perception") || govSemField.equals("cognition")) {
-				roleLabel = "Experiencer%Pivot";
-			} else {
-				roleLabel = "Agent%Co-Agent%Pivot";
-			}
-		} else if (depType.equals("agent")) {
-			roleLabel = "Agent%Co-Agent%Pivot";
-		
-			
-		} else if (depType.equals("nsubjpass")) {
-			roleLabel = "Patient%Co-Patient%Beneficiary"; 	
-		} else if (depType.equals("csubj")) {
-			roleLabel = "Theme%Co-Theme%Topic";									
-		} else if (depType.equals("iobj")) {
-			if (govSemField.equals("communication")) {
-				roleLabel = "Recipient";
-			} else {
-				roleLabel = "Patient%Co-Patient%Beneficiary"; 
-			}
-			
-		} else if (depType.equals("dobj") && (govSemField.equals("motion") || govSemField.equals("change"))) {
-			roleLabel = "Extent";
-		} else if (depType.equals("dobj") && govSemField.equals("possession")) {
-			roleLabel = "Goal";			
-		} else if (depType.equals("dobj") && govSemField.equals("communication")) {
-			roleLabel = "Predicate";			
-			
-		} else if (depType.equals("dobj")) {
-			roleLabel = "Patient%Co-Patient%Beneficiary"; 
-		} else if (depType.equals("obj")) {
-			roleLabel = "Theme%Co-Theme%Topic";
-			
-		} else if (depType.equals("ccomp")) {
-			roleLabel = "Theme%Co-Theme%Topic";
-		} else if (depType.equals("xcomp")) {
-			roleLabel = "Theme%Co-Theme%Topic";
-		} else if (depType.equals("csubj")) {
-			roleLabel = "Theme%Co-Theme%Topic";
-		} else {
-			// this covers different cases:
-			// - the dependency type is not relevant for argument classification: 
-			// dep, mark, vmod, advcl, tmod, advmod, conj_and, prep, discourse, parataxis
-			// - the dependency type is relevant, but there is no rule yet that covers it, e.g. prep_x
-			roleLabel = "noRoleLabel";
-		}		
-		return roleLabel;		
+
+		rules.addRule("prep_with", "Instrument", 
+				isNot(DEP_SEM_FIELD, "person", "group"), isNot(DEP_NE_TAG, "person", "group"));
+
+		rules.addRule("prep_to", "Destination", 
+				isNot(DEP_SEM_FIELD, "person", "group"), isNot(DEP_NE_TAG, "person", "group"))
+			.addRule("prep_to", "Patient%Co-Patient%Beneficiary");
+
+		rules.addRule("prep_against", "Recipient");
+
+		rules.addRule("prep_after", "Time")
+			.addRule("prepc_after", "Time");
+
+		rules.addRule("prep_before", "Time", is(DEPENDENT_POS, "CARD"))
+			.addRule("prepc_before", "Time");
+
+		rules.addRule("prep_at", "Stimulus", is(GOV_SEM_FIELD, "perception"))
+			.addRule("prep_at", "Value%Asset", is(GOV_SEM_FIELD, "possession"))
+			.addRule("prep_at", "Value%Asset", is(DEPENDENT_POS, "CARD"))
+			.addRule("prep_at", "Location");
+
+		rules.addRule("prep_under", "Theme%Co-Theme%Topic", isNot(GOV_SEM_FIELD, "motion", "stative"));
+
+		rules.addRule("prep_as", "Attribute%Predicate", is(GOV_SEM_FIELD, "communication", "cognition"));
+
+		rules.addRule("prep_for", "Cause", 
+				isNot(DEP_SEM_FIELD, "person", "group"), isNot(DEP_NE_TAG, "person", "group"))
+			.addRule("prep_for", "Patient%Co-Patient%Beneficiary");
+
+		rules.addRule("prep_on", "Location", is(GOV_SEM_FIELD, "body"))
+			.addRule("prep_on", "Destination", is(GOV_SEM_FIELD, "contact"))
+			.addRule("prep_on", "Time", is(GOV_SEM_FIELD, "communication"))
+			.addRule("prep_on", "Theme%Co-Theme%Topic", isNot(GOV_SEM_FIELD, "motion", "stative"))
+			.addRule("prep_on", "Location");
+
+		rules.addRule("prep_from", "Source", is(GOV_SEM_FIELD, "motion"));
+
+		rules.addRule("prep_away_from", "Source");
+
+		rules.addRule("prep_through", "Location", is(GOV_SEM_FIELD, "motion"));
+
+		rules.addRule("prep_below", "Destination", is(GOV_SEM_FIELD, "motion"));
+
+		rules.addRule("prep_into", "Destination", is(GOV_SEM_FIELD, "motion"))
+			.addRule("prep_into", "Location");
+
+		rules.addRule("prepc_on", "Theme%Co-Theme%Topic", is(GOV_SEM_FIELD, "cognition"));
+
+		rules.addRule("prep_over", "Theme%Co-Theme%Topic", is(GOV_SEM_FIELD, "communication"))
+			.addRule("prep_over", "Location", is(GOV_SEM_FIELD, "motion"));
+
+		rules.addRule("prep_in", "Theme%Co-Theme%Topic", is(DEPENDENT_POS, "NN"), isNot(GOV_SEM_FIELD, "motion"))
+			.addRule("prep_in", "Theme%Co-Theme%Topic", isNot(GOV_SEM_FIELD, "motion", "stative"))
+			.addRule("prep_in", "Time", is(DEPENDENT_POS, "CARD"))
+			.addRule("prep_in", "Location", is(DEPENDENT_POS, "NP"))
+			.addRule("prep_in", "Location");
+
+		rules.addRule("prep_prior_to", "Time", is(DEPENDENT_POS, "CARD"))
+			.addRule("prep_during", "Time");
+
+		rules.addRule("prep_of", "Theme%Co-Theme%Topic", is(GOV_SEM_FIELD, "communication", "cognition"))
+			.addRule("prepc_of", "Cause");
+
+		rules.addRule("nsubj", "Experiencer%Pivot", is(GOV_SEM_FIELD, "emotion", "perception", "cognition"))
+			.addRule("nsubj", "Agent%Co-Agent%Pivot")
+			.addRule("agent", "Agent%Co-Agent%Pivot");
+
+		rules.addRule("nsubjpass", "Patient%Co-Patient%Beneficiary")
+			.addRule("csubj", "Theme%Co-Theme%Topic")
+			.addRule("iobj", "Recipient", is(GOV_SEM_FIELD, "communication"))
+			.addRule("iobj", "Patient%Co-Patient%Beneficiary");
+
+		rules.addRule("dobj", "Extent", is(GOV_SEM_FIELD, "motion", "change"))
+			.addRule("dobj", "Goal", is(GOV_SEM_FIELD, "possession"))
+			.addRule("dobj", "Predicate", is(GOV_SEM_FIELD, "communication"))
+			.addRule("dobj", "Patient%Co-Patient%Beneficiary")
+			.addRule("obj", "Theme%Co-Theme%Topic");
+
+		rules.addRule("ccomp", "Theme%Co-Theme%Topic")
+			.addRule("xcomp", "Theme%Co-Theme%Topic");
+		return rules;
 	}
 
 	public String vn2fnLabel(String roleLabel, String fnFrame) {
-		String predictedLabel = roleLabel;
-		HashMap<String, List<String>> roleMap = new HashMap<String, List<String>>();
-		HashSet<String> roleSet = new HashSet<String>();
-		List<String> vnClasses = new LinkedList<String>();
-
-		if (!roleLabel.equals("noRoleLabel")) {
-			String[] vnRoles = roleLabel.split("%");
-			for (String role : vnRoles) {
-				// lookup Semlink mapping
-				if (classMapping.containsKey(fnFrame)) {
-					vnClasses = classMapping.get(fnFrame); //System.out.println("fnFrame is mapped to vnClasses: " +vnClasses);
-					for (String vnClass : vnClasses) {
-						String roleMapKey = fnFrame+"%"+vnClass;
-						roleMap = semlinkMapping.get(roleMapKey); //System.out.println("roleMap for fnFrame: " +roleMap);
-						if (roleMap.containsKey(role)) {
-							roleSet.addAll(roleMap.get(role));
-						}
-					}
-				}
-				if (!roleSet.isEmpty()) { // there is a Semlink mapping for this frame / role combination
-					predictedLabel = roleLabel+"%%" +roleSet.toString();
-				} else {
-					predictedLabel = roleLabel+"%%noSemlinkEntry";
-				}
-			}
-		} 
-		return predictedLabel;
+		return resolver.resolve(roleLabel, fnFrame).getMappedLabel();
 	}
 
-
-
+	/**
+	 * Maps the VerbNet role label to the FrameNet roles of the frame, e.g. 
+	 * Agent%Pivot -> "Agent%Pivot%%" +roleSet.toString();
+	 * Results are memoized, repeated calls return the same instance.
+	 */
+	public FnRoleResolution resolve(String roleLabel, String fnFrame) {
+		return resolver.resolve(roleLabel, fnFrame);
+	}
 
 }
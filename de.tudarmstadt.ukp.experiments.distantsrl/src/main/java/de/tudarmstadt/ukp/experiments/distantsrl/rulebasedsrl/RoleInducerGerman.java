@@ -17,10 +17,10 @@
  ******************************************************************************/
 package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
+import static de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.RoleRuleSet.Field.DEP_NE_TAG;
+import static de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.RoleRuleSet.Field.DEP_SEM_FIELD;
+import static de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.RoleRuleSet.Field.GOV_SEM_FIELD;
+import static de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl.RoleRuleSet.is;
 
 /**
  * @author Judith Eckle-Kohler
@@ -28,20 +28,15 @@ import java.util.List;
  */
 public class RoleInducerGerman {
 	
-    private HashMap<String, HashMap<String, List<String>>> semlinkMapping;
-    private HashMap<String, List<String>> classMapping;
+    private final SemLinkRoleResolver resolver;
 
 	public RoleInducerGerman(String mappingLoc) {
-		semlinkMapping = 
-				de.tudarmstadt.ukp.experiments.distantsrl.utils.RoleMappingUtil.readSemLinkVnFn(mappingLoc + "VN-FNRoleMapping.txt");
-		System.err.println(semlinkMapping.keySet().size() + " " +semlinkMapping.keySet().iterator().next() + " SMELINKMAPPING");
-		
-		classMapping = 
-				de.tudarmstadt.ukp.experiments.distantsrl.utils.RoleMappingUtil.readSemLinkClassMapping(mappingLoc + "VN-FNRoleMapping.txt");
-		System.err.println(classMapping.keySet().size() + " " +classMapping.keySet().iterator().next() + " classMAPPING");
-
+		// the mapping is loaded once per JVM and shared by all instances
+		resolver = SemLinkRoleResolver.getShared(mappingLoc + "VN-FNRoleMapping.txt");
 	}
 	
+	private static final RoleRuleSet RULES = createRules();
+
 	public String labelDependent(String depType, String dependentPos, 
 			String depSemField, String depNeTag, String govSemField) {
 		// predicate info has the form:
@@ -50,126 +45,71 @@ public class RoleInducerGerman {
 		// semlink mapping has the form:
 		// fnframe%vnclass -> (vnrole -> listOfFnroles)
 		
-		String roleLabel = null;
-		
+		// dependencies not covered by any rule get "noRoleLabel", this covers different cases:
+		// - the dependency type is not relevant for argument classification: 
+		// dep, mark, vmod, advcl, tmod, advmod, conj_and, prep, discourse, parataxis
+		// - the dependency type is relevant, but there is no rule yet that covers it, e.g. prep_x
+		return RULES.label(depType, dependentPos, depSemField, depNeTag, govSemField);
+	}
+
+	public static RoleRuleSet getRules() {
+		return RULES;
+	}
+
+	private static RoleRuleSet createRules() {
+		RoleRuleSet rules = new RoleRuleSet();
+
 		// semantic fields of arguments:
-		if (depSemField.equals("Ort") || depNeTag.equals("i-loc")) {
-			roleLabel = "Location%InitialLocation";
-		} else if (depSemField.equals("Zeit")) {
-			roleLabel = "Time";
-		} else if (depSemField.equals("Menge")) {
-			roleLabel = "Value%Asset";
-						
+		rules.addGlobalRule("Location%InitialLocation", is(DEP_SEM_FIELD, "Ort"))
+			.addGlobalRule("Location%InitialLocation", is(DEP_NE_TAG, "i-loc"))
+			.addGlobalRule("Time", is(DEP_SEM_FIELD, "Zeit"))
+			.addGlobalRule("Value%Asset", is(DEP_SEM_FIELD, "Menge"));
+
 // **********************************************************************************
-			
-		} else if (depType.equals("MI") // instrumental
-				) {
-			roleLabel = "Instrument";
-			
-		} else if (depType.equals("MW") // way (directional modifier)
-				) {
-			roleLabel = "Destination";	
-			
-			
-		} else if (depType.equals("OG")) { // genitive object
-			roleLabel = "Theme%Co-Theme%Topic"; 
-
-
-		} else if (depType.equals("OP") && govSemField.equals("Perzeption") ) { // OP = prepositional object
-			roleLabel = "Stimulus";	
-			
-		} else if (depType.equals("NMC") ) {
-			roleLabel = "Value%Asset";	
-			
-		} else if (depType.equals("ML")) { // locative
-			roleLabel = "Location";
-
-
-		} else if (depType.equals("OP") ) {
-			roleLabel = "Theme%Co-Theme%Topic";
-			
-		} else if (depType.equals("OA2") && (govSemField.equals("Kommunikation") || govSemField.equals("Kognition"))) { // second accusative
-			roleLabel = "Attribute%Predicate";
-
-		} else if (depType.equals("SB")) {		// subject	
-			if (govSemField.equals("Gefuehl") || govSemField.equals("Perzeption") || govSemField.equals("Kognition")) {
-				roleLabel = "Experiencer%Pivot";
-			} else {
-				roleLabel = "Agent%Co-Agent%Pivot";
-			}
-			
-		} else if (depType.equals("SBP")) { // passivised subject
-			roleLabel = "Patient%Co-Patient%Beneficiary"; 	
-			
-		} else if (depType.equals("DA")) { // dative object
-			if (govSemField.equals("Kommunikation")) {
-				roleLabel = "Recipient";
-			} else {
-				roleLabel = "Patient%Co-Patient%Beneficiary"; 
-			}
-			
-		} else if (depType.equals("OA") && govSemField.equals("Veraenderung")) { // OA= accusative object
-			roleLabel = "Extent";
-		} else if (depType.equals("OA") && govSemField.equals("Besitz")) {
-			roleLabel = "Goal";			
-		} else if (depType.equals("OA") && govSemField.equals("Kommunikation")) {
-			roleLabel = "Predicate";			
-			
-		} else if (depType.equals("OA")) {
-			roleLabel = "Patient%Co-Patient%Beneficiary"; 
-		} else if (depType.equals("OA2")) {
-			roleLabel = "Theme%Co-Theme%Topic";
-			
-		} else if (depType.equals("OC")) { // clausal object
-			roleLabel = "Theme%Co-Theme%Topic";
-
-		} else if (depType.equals("RS")) { // reported speech
-			roleLabel = "Theme%Co-Theme%Topic";
-
-			
-		} else {
-			// this covers different cases:
-			// - the dependency type is not relevant for argument classification: 
-			// dep, mark, vmod, advcl, tmod, advmod, conj_and, prep, discourse, parataxis
-			// - the dependency type is relevant, but there is no rule yet that covers it, e.g. prep_x
-			roleLabel = "noRoleLabel";
-		}		
-		return roleLabel;		
+
+		rules.addRule("MI", "Instrument") // instrumental
+			.addRule("MW", "Destination"); // way (directional modifier)
+
+		rules.addRule("OG", "Theme%Co-Theme%Topic"); // genitive object
+
+		rules.addRule("OP", "Stimulus", is(GOV_SEM_FIELD, "Perzeption")) // OP = prepositional object
+			.addRule("OP", "Theme%Co-Theme%Topic");
+
+		rules.addRule("NMC", "Value%Asset")
+			.addRule("ML", "Location"); // locative
+
+		rules.addRule("OA2", "Attribute%Predicate", is(GOV_SEM_FIELD, "Kommunikation", "Kognition")) // second accusative
+			.addRule("OA2", "Theme%Co-Theme%Topic");
+
+		rules.addRule("SB", "Experiencer%Pivot", is(GOV_SEM_FIELD, "Gefuehl", "Perzeption", "Kognition")) // subject
+			.addRule("SB", "Agent%Co-Agent%Pivot");
+
+		rules.addRule("SBP", "Patient%Co-Patient%Beneficiary"); // passivised subject
+
+		rules.addRule("DA", "Recipient", is(GOV_SEM_FIELD, "Kommunikation")) // dative object
+			.addRule("DA", "Patient%Co-Patient%Beneficiary");
+
+		rules.addRule("OA", "Extent", is(GOV_SEM_FIELD, "Veraenderung")) // OA= accusative object
+			.addRule("OA", "Goal", is(GOV_SEM_FIELD, "Besitz"))
+			.addRule("OA", "Predicate", is(GOV_SEM_FIELD, "Kommunikation"))
+			.addRule("OA", "Patient%Co-Patient%Beneficiary");
+
+		rules.addRule("OC", "Theme%Co-Theme%Topic") // clausal object
+			.addRule("RS", "Theme%Co-Theme%Topic"); // reported speech
+		return rules;
 	}
 
 	public String vn2fnLabel(String roleLabel, String fnFrame) {
-		String predictedLabel = roleLabel;
-		HashMap<String, List<String>> roleMap = new HashMap<String, List<String>>();
-		HashSet<String> roleSet = new HashSet<String>();
-		List<String> vnClasses = new LinkedList<String>();
-
-		if (!roleLabel.equals("noRoleLabel")) {
-			String[] vnRoles = roleLabel.split("%");
-			for (String role : vnRoles) {
-				System.err.println("role lookup map" + role);
-				// lookup Semlink mapping
-				if (classMapping.containsKey(fnFrame)) {
-					System.err.println("here frame mapped");
-					vnClasses = classMapping.get(fnFrame); System.out.println("fnFrame is mapped to vnClasses: " +vnClasses);
-					for (String vnClass : vnClasses) {
-						String roleMapKey = fnFrame+"%"+vnClass;
-						roleMap = semlinkMapping.get(roleMapKey); System.out.println("roleMap for fnFrame: " +roleMap);
-						if (roleMap.containsKey(role)) {
-							roleSet.addAll(roleMap.get(role));
-						}
-					}
-				}
-				if (!roleSet.isEmpty()) { // there is a Semlink mapping for this frame / role combination
-					predictedLabel = roleLabel+"%%" +roleSet.toString();
-				} else {
-					predictedLabel = roleLabel+"%%noSemlinkEntry";
-				}
-			}
-		} 
-		return predictedLabel;
+		return resolver.resolve(roleLabel, fnFrame).getMappedLabel();
 	}
 
-
-
+	/**
+	 * Maps the VerbNet role label to the FrameNet roles of the frame, e.g. 
+	 * Agent%Pivot -> "Agent%Pivot%%" +roleSet.toString();
+	 * Results are memoized, repeated calls return the same instance.
+	 */
+	public FnRoleResolution resolve(String roleLabel, String fnFrame) {
+		return resolver.resolve(roleLabel, fnFrame);
+	}
 
 }
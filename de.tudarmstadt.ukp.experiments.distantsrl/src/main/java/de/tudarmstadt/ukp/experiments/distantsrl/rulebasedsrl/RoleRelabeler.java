@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Labels the tuples of a feature file written with -Dsrl.featureFile again,
+ * with the current role rules and SemLink mapping but without parsing or
+ * semantic field lookups, to try out rule changes in seconds.
+ *
+ * <pre>
+ * RoleRelabeler &lt;en|de&gt; featureFile semLinkLocation outputFile
+ * </pre>
+ *
+ * Writes one line per labeled dependency: document id, target begin and end,
+ * frame, argument begin and end (-1 without a constituent), rule label and
+ * FrameNet role label. The counts are printed like the role annotators print
+ * them and stored next to the output (see {@link SrlStatistics#statsFile(File)}),
+ * so they can be compared with those of a full run.
+ *
+ */
+public class RoleRelabeler {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 4) {
+            System.err.println("Usage: RoleRelabeler <en|de> featureFile semLinkLocation outputFile");
+            System.exit(2);
+        }
+        boolean german = args[0].equals("de");
+        File outputFile = new File(args[3]);
+        long start = System.currentTimeMillis();
+        SrlStatistics statistics = relabel(german, new File(args[1]), args[2], outputFile);
+        System.out.println("Total Number of automatically labeled arguments:\t" + statistics.getPredictedRoles());
+        System.out.println("set of predicted roles:\t" + statistics.getSetOfPredictedRoles().toString());
+        System.out.println("Relabeled in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Label all tuples of the feature file and write them to the output file.
+     *
+     * @param german use the rules of the {@link RoleInducerGerman}
+     * @return the counts of the run, as the role annotator would have merged
+     *         them
+     */
+    public static SrlStatistics relabel(boolean german, File featureFile, String mappingLoc, File outputFile)
+        throws IOException {
+        RoleInducer english = german ? null : new RoleInducer(mappingLoc);
+        RoleInducerGerman germanInducer = german ? new RoleInducerGerman(mappingLoc) : null;
+
+        SrlStatistics statistics = new SrlStatistics();
+        StringBuilder line = new StringBuilder(128);
+        FeatureTupleReader reader = new FeatureTupleReader(featureFile);
+        Writer writer = null;
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile), "UTF-8"), 65536);
+            FeatureTuple tuple;
+            while ((tuple = reader.next()) != null) {
+                String predictedRoleLabel;
+                FnRoleResolution resolution;
+                if (german) {
+                    predictedRoleLabel = germanInducer.labelDependent(tuple.getDepType(), tuple.getDependentPos(),
+                            tuple.getDepSemField(), tuple.getDepNeTag(), tuple.getGovSemField());
+                    resolution = germanInducer.resolve(predictedRoleLabel, tuple.getFrame());
+                } else {
+                    predictedRoleLabel = english.labelDependent(tuple.getDepType(), tuple.getDependentPos(),
+                            tuple.getDepSemField(), tuple.getDepNeTag(), tuple.getGovSemField());
+                    resolution = english.resolve(predictedRoleLabel, tuple.getFrame());
+                }
+                statistics.addRoles(resolution.getVnRoles());
+                if (predictedRoleLabel.equals("noRoleLabel")) {
+                    continue;
+                }
+                // like the annotators: only the German one counts the labeled arguments in prediction mode
+                if (german && tuple.hasArgument()) {
+                    statistics.incrementPredictedRoles();
+                }
+                line.setLength(0);
+                line.append(tuple.getDocumentId()).append('\t')
+                        .append(tuple.getPredicateBegin()).append('\t').append(tuple.getPredicateEnd()).append('\t')
+                        .append(tuple.getFrame()).append('\t')
+                        .append(tuple.getArgumentBegin()).append('\t').append(tuple.getArgumentEnd()).append('\t')
+                        .append(predictedRoleLabel).append('\t').append(resolution.getFnRoleLabel()).append('\n');
+                writer.append(line);
+            }
+        } finally {
+            reader.close();
+            if (writer != null) {
+                writer.close();
+            }
+        }
+
+        statistics.store(SrlStatistics.statsFile(outputFile));
+        return statistics;
+    }
+}
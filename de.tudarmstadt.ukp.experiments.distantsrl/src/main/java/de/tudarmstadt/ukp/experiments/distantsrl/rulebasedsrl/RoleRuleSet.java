@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Declarative set of role labeling rules.
+ *
+ * Rules are grouped by dependency type, so labeling a dependency needs one hash
+ * lookup followed by a scan over the few rules of that type instead of a scan
+ * over all rules. Global rules (the ones testing only the semantic field or NE
+ * tag of the dependent) are checked first, regardless of the dependency type.
+ * Within a group, the first rule whose conditions all hold determines the label.
+ *
+ */
+public class RoleRuleSet {
+
+    public static final String NO_ROLE_LABEL = "noRoleLabel";
+
+    /**
+     * The rule inputs a condition can test.
+     */
+    public enum Field {
+        DEPENDENT_POS, DEP_SEM_FIELD, DEP_NE_TAG, GOV_SEM_FIELD
+    }
+
+    private final List<Rule> globalRules = new ArrayList<Rule>();
+    private final HashMap<String, List<Rule>> rulesByDepType = new HashMap<String, List<Rule>>();
+    private final Set<String> labels = new LinkedHashSet<String>();
+
+    /**
+     * Adds a rule that is checked for all dependency types, before any type
+     * specific rule.
+     */
+    public RoleRuleSet addGlobalRule(String roleLabel, Condition... conditions) {
+        globalRules.add(new Rule(roleLabel, conditions));
+        labels.add(roleLabel);
+        return this;
+    }
+
+    /**
+     * Adds a rule for the given dependency type. Rules of the same type are
+     * checked in the order they were added.
+     */
+    public RoleRuleSet addRule(String depType, String roleLabel, Condition... conditions) {
+        List<Rule> rules = rulesByDepType.get(depType);
+        if (rules == null) {
+            rules = new ArrayList<Rule>(4);
+            rulesByDepType.put(depType, rules);
+        }
+        rules.add(new Rule(roleLabel, conditions));
+        labels.add(roleLabel);
+        return this;
+    }
+
+    /**
+     * @return the VerbNet role label of the first matching rule, or
+     *         {@link #NO_ROLE_LABEL} if no rule matches
+     */
+    public String label(String depType, String dependentPos, String depSemField, String depNeTag,
+            String govSemField) {
+        for (int i = 0; i < globalRules.size(); i++) {
+            Rule rule = globalRules.get(i);
+            if (rule.matches(dependentPos, depSemField, depNeTag, govSemField)) {
+                return rule.roleLabel;
+            }
+        }
+        List<Rule> rules = rulesByDepType.get(depType);
+        if (rules != null) {
+            for (int i = 0; i < rules.size(); i++) {
+                Rule rule = rules.get(i);
+                if (rule.matches(dependentPos, depSemField, depNeTag, govSemField)) {
+                    return rule.roleLabel;
+                }
+            }
+        }
+        return NO_ROLE_LABEL;
+    }
+
+    /**
+     * @return all role labels the rules can produce, in the order of their
+     *         first occurrence, not including {@link #NO_ROLE_LABEL}
+     */
+    public Set<String> getLabels() {
+        return labels;
+    }
+
+    /**
+     * Condition that holds if the field has one of the given values.
+     */
+    public static Condition is(Field field, String... values) {
+        return new Condition(field, values, false);
+    }
+
+    /**
+     * Condition that holds if the field has none of the given values.
+     */
+    public static Condition isNot(Field field, String... values) {
+        return new Condition(field, values, true);
+    }
+
+    public static final class Condition {
+        private final Field field;
+        private final String[] values;
+        private final boolean negated;
+
+        private Condition(Field field, String[] values, boolean negated) {
+            this.field = field;
+            this.values = values;
+            this.negated = negated;
+        }
+
+        boolean matches(String dependentPos, String depSemField, String depNeTag, String govSemField) {
+            String value;
+            switch (field) {
+            case DEPENDENT_POS:
+                value = dependentPos;
+                break;
+            case DEP_SEM_FIELD:
+                value = depSemField;
+                break;
+            case DEP_NE_TAG:
+                value = depNeTag;
+                break;
+            default:
+                value = govSemField;
+            }
+            for (String v : values) {
+                if (v.equals(value)) {
+                    return !negated;
+                }
+            }
+            return negated;
+        }
+    }
+
+    private static final class Rule {
+        private final String roleLabel;
+        private final Condition[] conditions;
+
+        private Rule(String roleLabel, Condition[] conditions) {
+            this.roleLabel = roleLabel;
+            this.conditions = conditions;
+        }
+
+        private boolean matches(String dependentPos, String depSemField, String depNeTag, String govSemField) {
+            for (Condition condition : conditions) {
+                if (!condition.matches(dependentPos, depSemField, depNeTag, govSemField)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import de.tudarmstadt.ukp.experiments.distantsrl.utils.RoleMappingUtil;
+import de.tudarmstadt.ukp.experiments.distantsrl.utils.SemLinkMapping;
+
+/**
+ * Maps VerbNet role labels to FrameNet roles via SemLink.
+ *
+ * The inputs are a small finite space (the labels the rules produce times the
+ * frames of the sense inventory), so every resolution is computed once and
+ * memoized per frame and role label. Repeated lookups are two hash probes and
+ * do not allocate. Instances are safe to share between threads, and
+ * {@link #getShared(String)} loads every SemLink file only once per JVM.
+ *
+ */
+public class SemLinkRoleResolver {
+
+    private static final Map<String, SemLinkRoleResolver> SHARED = new HashMap<String, SemLinkRoleResolver>();
+
+    private final SemLinkMapping mapping;
+
+    private final ConcurrentMap<String, ConcurrentMap<String, FnRoleResolution>> cache =
+            new ConcurrentHashMap<String, ConcurrentMap<String, FnRoleResolution>>();
+
+    public SemLinkRoleResolver(SemLinkMapping mapping) {
+        this.mapping = mapping;
+    }
+
+    /**
+     * @return the resolver of a SemLink file, loaded on first use and shared
+     *         by all callers, e.g. the role annotators of a parallel run
+     */
+    public static SemLinkRoleResolver getShared(String filepath) {
+        synchronized (SHARED) {
+            SemLinkRoleResolver resolver = SHARED.get(filepath);
+            if (resolver == null) {
+                resolver = new SemLinkRoleResolver(RoleMappingUtil.loadSemLink(filepath));
+                SHARED.put(filepath, resolver);
+            }
+            return resolver;
+        }
+    }
+
+    public SemLinkMapping getMapping() {
+        return mapping;
+    }
+
+    public FnRoleResolution resolve(String roleLabel, String fnFrame) {
+        if (fnFrame == null) {
+            return compute(roleLabel, fnFrame);
+        }
+        ConcurrentMap<String, FnRoleResolution> frameCache = cache.get(fnFrame);
+        if (frameCache == null) {
+            frameCache = new ConcurrentHashMap<String, FnRoleResolution>();
+            ConcurrentMap<String, FnRoleResolution> existing = cache.putIfAbsent(fnFrame, frameCache);
+            if (existing != null) {
+                frameCache = existing;
+            }
+        }
+        FnRoleResolution resolution = frameCache.get(roleLabel);
+        if (resolution == null) {
+            resolution = compute(roleLabel, fnFrame);
+            frameCache.putIfAbsent(roleLabel, resolution);
+        }
+        return resolution;
+    }
+
+    private FnRoleResolution compute(String roleLabel, String fnFrame) {
+        List<String> vnRoles = Collections.unmodifiableList(Arrays.asList(roleLabel.split("%")));
+        if (roleLabel.equals(RoleRuleSet.NO_ROLE_LABEL)) {
+            return new FnRoleResolution(roleLabel, vnRoles, new BitSet(), Collections.<String> emptySet(), null,
+                    roleLabel);
+        }
+        // the role set is the OR of the precomputed bitsets of the single
+        // roles; the names are collected in a HashSet in the order of the
+        // class list as before, so the rendered label keeps the element
+        // order of earlier runs
+        BitSet fnRoleIds = new BitSet();
+        HashSet<String> roleSet = new HashSet<String>();
+        int frame = mapping.getFrames().getId(fnFrame);
+        if (frame >= 0) {
+            int[] vnClasses = mapping.getClasses(frame);
+            for (String role : vnRoles) {
+                int vnRole = mapping.getVnRoles().getId(role);
+                if (vnRole < 0 || mapping.getFnRoleSet(frame, vnRole) == null) {
+                    continue;
+                }
+                fnRoleIds.or(mapping.getFnRoleSet(frame, vnRole));
+                for (int c = 0; c < vnClasses.length; c++) {
+                    int[] fnRoles = mapping.getFnRoles(frame, c, vnRole);
+                    if (fnRoles != null) {
+                        for (int fnRole : fnRoles) {
+                            roleSet.add(mapping.getFnRoles().getSymbol(fnRole));
+                        }
+                    }
+                }
+            }
+        }
+        String fnRoleLabel;
+        if (!roleSet.isEmpty()) { // there is a Semlink mapping for this frame / role combination
+            fnRoleLabel = roleSet.toString();
+        } else {
+            fnRoleLabel = FnRoleResolution.NO_SEMLINK_ENTRY;
+        }
+        return new FnRoleResolution(roleLabel, vnRoles, fnRoleIds, Collections.unmodifiableSet(roleSet),
+                fnRoleLabel, roleLabel + "%%" + fnRoleLabel);
+    }
+}
@@ -0,0 +1,212 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import de.tudarmstadt.ukp.experiments.distantsrl.utils.CheckpointManifest;
+
+/**
+ * Runs an SRL pipeline on a corpus split into shards, one worker process per
+ * shard, and merges the srlLogFile statistics of the shards.
+ *
+ * <pre>
+ * run &lt;en|de&gt; sourceLocation outputLocation processes [threadsPerProcess]
+ * merge outputLocation
+ * </pre>
+ *
+ * "run" starts the pipeline for shard i of n in its own JVM, with the class
+ * path and JVM options of the runner and the output in outputLocation/shard-i,
+ * waits for all of them and merges their statistics into
+ * outputLocation/srlLogFile.log.stats. Debugger and profiler agents of the
+ * runner are not passed on, output files like srl.featureFile are written
+ * to the shard directory, and the H2 caches are opened in H2's mixed mode, so
+ * the workers can share them. To spread a corpus over several
+ * machines, start the pipeline main class with the shard argument on each
+ * machine instead (see {@link CorpusShards}), collect the shard directories
+ * and run "merge".
+ *
+ */
+public class ShardedSrlRunner {
+
+    public static final String LOG_FILE = "srlLogFile.log";
+    public static final String SHARD_PREFIX = "shard-";
+
+    // system properties of the pipelines that name an output file, every shard writes its own
+    private static final String[] FILE_PROPERTIES = { "srl.featureFile", "srl.metrics" };
+    // system properties of the pipelines with the URL of an H2 database that all shards open
+    private static final String[] DATABASE_PROPERTIES = { "srl.semanticFieldCache", "srl.parseCache" };
+    private static final String AUTO_SERVER = "AUTO_SERVER=TRUE";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length >= 5 && args[0].equals("run")) {
+            Class<?> pipeline = args[1].equals("de") ? FrameNetSrlPipelineGerman.class : FrameNetSrlPipeline.class;
+            int processes = Integer.parseInt(args[4]);
+            int threads = args.length >= 6 ? Integer.parseInt(args[5]) : 1;
+            if (!run(pipeline, args[2], new File(args[3]), processes, threads)) {
+                System.exit(1);
+            }
+            merge(new File(args[3]));
+        } else if (args.length == 2 && args[0].equals("merge")) {
+            merge(new File(args[1]));
+        } else {
+            System.err.println("Usage: run <en|de> sourceLocation outputLocation processes [threadsPerProcess]");
+            System.err.println("       merge outputLocation");
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Run one worker process per shard and wait for all of them.
+     *
+     * @return true if all workers succeeded
+     */
+    public static boolean run(Class<?> pipeline, String sourceLocation, File outputLocation, int processes,
+            int threads) throws IOException, InterruptedException {
+        List<Process> workers = new ArrayList<Process>();
+        for (int i = 0; i < processes; i++) {
+            File shardOutput = new File(outputLocation, SHARD_PREFIX + i);
+            shardOutput.mkdirs();
+
+            List<String> command = new ArrayList<String>();
+            command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+            command.addAll(workerArguments(ManagementFactory.getRuntimeMXBean().getInputArguments(), shardOutput));
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(pipeline.getName());
+            command.add(sourceLocation);
+            command.add(shardOutput.getPath());
+            command.add(Integer.toString(threads));
+            command.add(i + "/" + processes);
+
+            ProcessBuilder builder = new ProcessBuilder(command);
+            builder.redirectErrorStream(true);
+            builder.redirectOutput(new File(shardOutput, "worker.out"));
+            workers.add(builder.start());
+        }
+
+        boolean success = true;
+        for (int i = 0; i < workers.size(); i++) {
+            int exitCode = workers.get(i).waitFor();
+            if (exitCode != 0) {
+                System.err.println("Shard " + i + " failed with exit code " + exitCode + ", see "
+                        + new File(new File(outputLocation, SHARD_PREFIX + i), "worker.out"));
+                success = false;
+            }
+        }
+        return success;
+    }
+
+    /**
+     * The JVM options of a worker: the options of the runner without agents,
+     * with the output files of the pipeline moved into the shard directory and
+     * the H2 databases opened with AUTO_SERVER=TRUE.
+     */
+    static List<String> workerArguments(List<String> runnerArguments, File shardOutput) {
+        List<String> arguments = new ArrayList<String>();
+        for (String argument : runnerArguments) {
+            // a debugger agent would try to listen on the same port in every worker
+            if (argument.startsWith("-agentlib:") || argument.startsWith("-agentpath:")
+                    || argument.startsWith("-javaagent:") || argument.startsWith("-Xrunjdwp")
+                    || argument.equals("-Xdebug")) {
+                continue;
+            }
+            int separator = argument.indexOf('=');
+            if (argument.startsWith("-D") && separator > 0) {
+                String property = argument.substring(2, separator);
+                String value = argument.substring(separator + 1);
+                if (!value.isEmpty() && contains(FILE_PROPERTIES, property)) {
+                    argument = "-D" + property + "=" + new File(shardOutput, new File(value).getName()).getPath();
+                } else if (!value.isEmpty() && contains(DATABASE_PROPERTIES, property)) {
+                    argument = "-D" + property + "=" + sharedDatabaseUrl(property, value);
+                }
+            }
+            arguments.add(argument);
+        }
+        return arguments;
+    }
+
+    /**
+     * An embedded H2 database is locked by the first process that opens it.
+     * With AUTO_SERVER=TRUE that process serves it to the others.
+     */
+    private static String sharedDatabaseUrl(String property, String url) {
+        String upperCase = url.toUpperCase(Locale.ROOT);
+        if (!upperCase.startsWith("JDBC:H2:") || upperCase.startsWith("JDBC:H2:MEM:")
+                || upperCase.startsWith("JDBC:H2:TCP:") || upperCase.startsWith("JDBC:H2:SSL:")
+                || upperCase.contains(AUTO_SERVER)) {
+            return url;
+        }
+        if (upperCase.contains("AUTO_SERVER=")) {
+            throw new IllegalArgumentException(property + " is opened by all shards and needs " + AUTO_SERVER
+                    + ": " + url);
+        }
+        return url + (url.endsWith(";") ? "" : ";") + AUTO_SERVER;
+    }
+
+    private static boolean contains(String[] properties, String property) {
+        for (String p : properties) {
+            if (p.equals(property)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Merge the statistics of all shard directories of the output location.
+     */
+    public static SrlStatistics merge(File outputLocation) throws IOException {
+        return merge(outputLocation, SHARD_PREFIX);
+    }
+
+    /**
+     * Merge the statistics of the directories of the output location whose
+     * names start with the prefix, e.g. the shards, or the run attempts of a
+     * checkpointed run (see {@link CheckpointManifest#createAttemptDirectory}),
+     * and store them next to the log of the output location.
+     */
+    public static SrlStatistics merge(File outputLocation, String prefix) throws IOException {
+        SrlStatistics total = new SrlStatistics();
+        File[] shards = outputLocation.listFiles();
+        int merged = 0;
+        if (shards != null) {
+            for (File shard : shards) {
+                File stats = SrlStatistics.statsFile(new File(shard, LOG_FILE));
+                if (shard.getName().startsWith(prefix) && stats.isFile()) {
+                    total.merge(SrlStatistics.load(stats));
+                    merged++;
+                }
+            }
+        }
+        total.store(SrlStatistics.statsFile(new File(outputLocation, LOG_FILE)));
+
+        System.out.println("Merged statistics of " + merged + " " + prefix + "* directories");
+        System.out.println("Total Number of gold semantic arguments that belong to a verbal predicate:\t"
+                + total.getAllSemArgs());
+        System.out.println("Correctly predicted roles:\t" + total.getCorrectlyPredictedRoles());
+        System.out.println("Total Number of automatically labeled arguments:\t" + total.getPredictedRoles());
+        System.out.println("set of predicted roles:\t" + total.getSetOfPredictedRoles().toString());
+        return total;
+    }
+}
@@ -0,0 +1,284 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.io.IOUtils;
+
+import de.tudarmstadt.ukp.experiments.distantsrl.utils.SrlLogWriter;
+import de.tudarmstadt.ukp.experiments.distantsrl.utils.StripedCounter;
+
+/**
+ * Counts and log file of the role annotator instances that write to the same
+ * srlLogFile.
+ *
+ * In a parallel run every worker has its own role annotator. The instances
+ * share one {@link SrlLogWriter} and count directly into the shared
+ * statistics, with {@link StripedCounter}s and a concurrent histogram of the
+ * predicted VerbNet roles, so counting takes no lock; the last instance to
+ * complete writes the summary for all of them and closes the log. In a
+ * sequential run there is only one instance.
+ *
+ * The counts are also stored next to the log (see {@link #statsFile(File)}),
+ * so the statistics of separately processed shards can be merged.
+ *
+ */
+public class SrlStatistics {
+
+    public static final String STATS_SUFFIX = ".stats";
+
+    private static final Map<String, SrlStatistics> SHARED = new HashMap<String, SrlStatistics>();
+
+    private final String key;
+    private final SrlLogWriter logWriter;
+    private int users = 0;
+
+    private final StripedCounter allSemArgs = new StripedCounter();
+    private final StripedCounter correctlyPredictedRoles = new StripedCounter();
+    private final StripedCounter predictedRoles = new StripedCounter();
+    // how often each role was among the candidate roles of a label
+    private final ConcurrentMap<String, StripedCounter> roleCounts = new ConcurrentHashMap<String, StripedCounter>();
+
+    private SrlStatistics(String key, SrlLogWriter logWriter) {
+        this.key = key;
+        this.logWriter = logWriter;
+    }
+
+    /**
+     * Statistics that are not tied to a log file, e.g. to merge shards.
+     */
+    public SrlStatistics() {
+        this(null, null);
+    }
+
+    /**
+     * @return the file the counts of a log file are stored in
+     */
+    public static File statsFile(File logFile) {
+        return new File(logFile.getPath() + STATS_SUFFIX);
+    }
+
+    /**
+     * Get the statistics of a log file, opening the log if this is its first
+     * user. Every call has to be matched by a {@link #release()}.
+     */
+    public static SrlStatistics acquire(File outputFile, boolean compress, int flushRecords, long flushInterval)
+        throws IOException {
+        String key = outputFile.getAbsolutePath();
+        synchronized (SHARED) {
+            SrlStatistics statistics = SHARED.get(key);
+            if (statistics == null) {
+                statistics = new SrlStatistics(key, new SrlLogWriter(outputFile, compress, flushRecords,
+                        flushInterval));
+                SHARED.put(key, statistics);
+            }
+            statistics.users++;
+            return statistics;
+        }
+    }
+
+    /**
+     * @return true if the caller was the last user; it has to write the
+     *         summary and close the log
+     */
+    public boolean release() {
+        synchronized (SHARED) {
+            users--;
+            if (users > 0) {
+                return false;
+            }
+            SHARED.remove(key);
+            return true;
+        }
+    }
+
+    public SrlLogWriter getLogWriter() {
+        return logWriter;
+    }
+
+    public void addSemArgs(long count) {
+        allSemArgs.add(count);
+    }
+
+    public void incrementPredictedRoles() {
+        predictedRoles.increment();
+    }
+
+    public void incrementCorrectlyPredictedRoles() {
+        correctlyPredictedRoles.increment();
+    }
+
+    public void addRoles(Collection<String> roles) {
+        for (String role : roles) {
+            roleCounter(role).increment();
+        }
+    }
+
+    private StripedCounter roleCounter(String role) {
+        StripedCounter counter = roleCounts.get(role);
+        if (counter == null) {
+            StripedCounter created = new StripedCounter();
+            counter = roleCounts.putIfAbsent(role, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Add counts, e.g. of an earlier run; the roles are counted once.
+     */
+    public void merge(long allSemArgs, long correctlyPredictedRoles, long predictedRoles,
+            Collection<String> setOfPredictedRoles) {
+        this.allSemArgs.add(allSemArgs);
+        this.correctlyPredictedRoles.add(correctlyPredictedRoles);
+        this.predictedRoles.add(predictedRoles);
+        addRoles(setOfPredictedRoles);
+    }
+
+    /**
+     * Add the counts of other statistics, e.g. of another shard.
+     */
+    public void merge(SrlStatistics other) {
+        allSemArgs.add(other.getAllSemArgs());
+        correctlyPredictedRoles.add(other.getCorrectlyPredictedRoles());
+        predictedRoles.add(other.getPredictedRoles());
+        for (Map.Entry<String, Long> role : other.getRoleCounts().entrySet()) {
+            roleCounter(role.getKey()).add(role.getValue());
+        }
+    }
+
+    /**
+     * Store the counts. The file is written under a temporary name and then
+     * moved into place, so a crash leaves the previous counts intact.
+     */
+    public synchronized void store(File file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("allSemArgs", Long.toString(getAllSemArgs()));
+        properties.setProperty("correctlyPredictedRoles", Long.toString(getCorrectlyPredictedRoles()));
+        properties.setProperty("predictedRoles", Long.toString(getPredictedRoles()));
+        StringBuilder roles = new StringBuilder();
+        StringBuilder counts = new StringBuilder();
+        for (Map.Entry<String, Long> role : getRoleCounts().entrySet()) {
+            if (roles.length() > 0) {
+                roles.append(',');
+                counts.append(',');
+            }
+            roles.append(role.getKey());
+            counts.append(role.getKey()).append('=').append(role.getValue());
+        }
+        properties.setProperty("setOfPredictedRoles", roles.toString());
+        properties.setProperty("predictedRoleCounts", counts.toString());
+        File tmp = new File(file.getPath() + ".tmp" + System.nanoTime());
+        OutputStream os = null;
+        try {
+            os = new FileOutputStream(tmp);
+            properties.store(os, "srlLogFile statistics");
+            os.close();
+            os = null;
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            IOUtils.closeQuietly(os);
+            tmp.delete();
+        }
+    }
+
+    public static SrlStatistics load(File file) throws IOException {
+        Properties properties = new Properties();
+        InputStream is = null;
+        try {
+            is = new FileInputStream(file);
+            properties.load(is);
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+        SrlStatistics statistics = new SrlStatistics();
+        statistics.allSemArgs.add(Long.parseLong(properties.getProperty("allSemArgs", "0")));
+        statistics.correctlyPredictedRoles.add(Long.parseLong(properties.getProperty("correctlyPredictedRoles", "0")));
+        statistics.predictedRoles.add(Long.parseLong(properties.getProperty("predictedRoles", "0")));
+        // files of older runs only have the set of roles
+        for (String role : properties.getProperty("setOfPredictedRoles", "").split(",")) {
+            if (!role.isEmpty()) {
+                statistics.roleCounter(role);
+            }
+        }
+        for (String count : properties.getProperty("predictedRoleCounts", "").split(",")) {
+            int separator = count.lastIndexOf('=');
+            if (separator > 0) {
+                statistics.roleCounter(count.substring(0, separator))
+                        .add(Long.parseLong(count.substring(separator + 1)));
+            }
+        }
+        return statistics;
+    }
+
+    public long getAllSemArgs() {
+        return allSemArgs.sum();
+    }
+
+    public long getCorrectlyPredictedRoles() {
+        return correctlyPredictedRoles.sum();
+    }
+
+    public long getPredictedRoles() {
+        return predictedRoles.sum();
+    }
+
+    /**
+     * @return the share of the predicted roles that are correct, 0 if there
+     *         are none
+     */
+    public double getPrecision() {
+        long predicted = getPredictedRoles();
+        return predicted == 0 ? 0.0 : (double) getCorrectlyPredictedRoles() / predicted;
+    }
+
+    public Set<String> getSetOfPredictedRoles() {
+        return new HashSet<String>(roleCounts.keySet());
+    }
+
+    /**
+     * @return the role histogram, sorted by role
+     */
+    public SortedMap<String, Long> getRoleCounts() {
+        SortedMap<String, Long> counts = new TreeMap<String, Long>();
+        for (Map.Entry<String, StripedCounter> role : roleCounts.entrySet()) {
+            counts.put(role.getKey(), role.getValue().sum());
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.fit.component.JCasAnnotator_ImplBase;
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+import org.apache.uima.util.Level;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+import de.tudarmstadt.ukp.dkpro.wsd.type.WSDItem;
+
+/**
+ * Hides the sentences without a sense-tagged target (WSDItem) from the
+ * following engines, by removing them from the index. The Stanford parser and
+ * named entity recognizer work sentence by sentence and skip them, and so
+ * does the role annotator, which has nothing to label there in prediction
+ * mode. Not for evaluation mode, which takes its targets from the gold roles.
+ *
+ * Put a {@link TargetSentenceRestorer} after the expensive engines to index
+ * the hidden sentences again, e.g. before writing full XMI documents. Both have
+ * to run in the same process, see {@link HiddenSentences}.
+ *
+ */
+public class TargetSentenceFilter extends JCasAnnotator_ImplBase {
+
+    private long kept = 0;
+    private long hidden = 0;
+
+    @Override
+    public void process(JCas aJCas) throws AnalysisEngineProcessException {
+        Map<Sentence, Collection<WSDItem>> targets = JCasUtil.indexCovered(aJCas, Sentence.class, WSDItem.class);
+        List<Sentence> withoutTarget = new ArrayList<Sentence>();
+        for (Sentence sentence : JCasUtil.select(aJCas, Sentence.class)) {
+            Collection<WSDItem> items = targets.get(sentence);
+            if (items == null || items.isEmpty()) {
+                withoutTarget.add(sentence);
+            }
+        }
+        HiddenSentences.hide(aJCas, TargetSentenceFilter.class, withoutTarget);
+
+        hidden += withoutTarget.size();
+        kept += JCasUtil.select(aJCas, Sentence.class).size();
+    }
+
+    @Override
+    public void collectionProcessComplete() throws AnalysisEngineProcessException {
+        getLogger().log(Level.INFO, "Sentences with target: " + kept + ", hidden: " + hidden);
+        super.collectionProcessComplete();
+    }
+}
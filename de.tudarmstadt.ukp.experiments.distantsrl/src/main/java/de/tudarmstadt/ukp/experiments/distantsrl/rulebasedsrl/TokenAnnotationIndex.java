@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.rulebasedsrl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.uima.fit.util.JCasUtil;
+import org.apache.uima.jcas.JCas;
+
+import de.tudarmstadt.ukp.dkpro.core.api.ner.type.NamedEntity;
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Token;
+import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemanticArgument;
+import de.tudarmstadt.ukp.dkpro.core.api.semantics.type.SemanticField;
+import de.tudarmstadt.ukp.dkpro.core.api.syntax.type.constituent.Constituent;
+
+/**
+ * Token level view of the annotations the role annotators look up for the
+ * governor and dependent of a dependency.
+ *
+ * The covering / covered annotations of all tokens are indexed once per
+ * document, so a lookup is a hash probe instead of a scan of the CAS index per
+ * dependency. The index reflects the CAS at construction time; annotations
+ * added afterwards (e.g. the predicted semantic arguments) are not included.
+ *
+ */
+public class TokenAnnotationIndex {
+
+    private final Map<Token, Collection<NamedEntity>> namedEntities;
+    private final Map<Token, Collection<SemanticField>> semanticFields;
+    private final Map<Token, Collection<Constituent>> constituents;
+    private final Map<Token, Collection<SemanticArgument>> semanticArguments;
+
+    /**
+     * @param withSemanticArguments also index the (gold) semantic arguments
+     *            covering the tokens, only needed in evaluation mode
+     */
+    public TokenAnnotationIndex(JCas jcas, boolean withSemanticArguments) {
+        namedEntities = JCasUtil.indexCovering(jcas, Token.class, NamedEntity.class);
+        semanticFields = JCasUtil.indexCovered(jcas, Token.class, SemanticField.class);
+        constituents = JCasUtil.indexCovering(jcas, Token.class, Constituent.class);
+        if (withSemanticArguments) {
+            semanticArguments = JCasUtil.indexCovering(jcas, Token.class, SemanticArgument.class);
+        } else {
+            semanticArguments = Collections.emptyMap();
+        }
+    }
+
+    /**
+     * Same as {@code JCasUtil.selectCovering(NamedEntity.class, token)}.
+     */
+    public List<NamedEntity> getNamedEntities(Token token) {
+        return asList(namedEntities.get(token));
+    }
+
+    /**
+     * Same as {@code JCasUtil.selectCovered(jcas, SemanticField.class, token.getBegin(), token.getEnd())}.
+     */
+    public List<SemanticField> getSemanticFields(Token token) {
+        return asList(semanticFields.get(token));
+    }
+
+    /**
+     * Same as {@code JCasUtil.selectCovering(jcas, Constituent.class, token.getBegin(), token.getEnd())},
+     * i.e. the outermost constituent comes first.
+     */
+    public List<Constituent> getConstituents(Token token) {
+        return asList(constituents.get(token));
+    }
+
+    /**
+     * Same as {@code JCasUtil.selectCovering(jcas, SemanticArgument.class, token.getBegin(), token.getEnd())}.
+     */
+    public List<SemanticArgument> getSemanticArguments(Token token) {
+        return asList(semanticArguments.get(token));
+    }
+
+    private static <T> List<T> asList(Collection<T> annotations) {
+        if (annotations == null) {
+            return Collections.emptyList();
+        }
+        if (annotations instanceof List) {
+            return (List<T>) annotations;
+        }
+        return new ArrayList<T>(annotations);
+    }
+}
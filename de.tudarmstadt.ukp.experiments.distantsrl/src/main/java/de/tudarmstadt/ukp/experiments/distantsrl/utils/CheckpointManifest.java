@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.utils;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.uima.cas.CAS;
+
+/**
+ * Append-only journal of the input files a pipeline run has completed, to
+ * resume an interrupted run without processing them again.
+ *
+ * Every line holds the path of an input file, relative to the source
+ * location, and the id of its document, separated by a tab. The reader
+ * announces which file the document in a CAS came from ({@link #started});
+ * the {@code CheckpointCommitter} after the writer appends the line once the
+ * output of the document is written ({@link #commit}). The documents in flight
+ * are told apart by their CAS (see {@link #documentKey}), not by the document
+ * id, which need not be unique or set. Lines are flushed one by one, a last
+ * line cut off by a crash is removed on the next run.
+ *
+ * The reader and the committers of a parallel run share one manifest, see
+ * {@link #acquire(File)}.
+ *
+ */
+public class CheckpointManifest {
+
+    public static final String FILE_NAME = "checkpoint.tsv";
+    public static final String ATTEMPT_PREFIX = "run-";
+
+    private static final Map<String, CheckpointManifest> SHARED = new HashMap<String, CheckpointManifest>();
+
+    private final String key;
+    private int users = 0;
+
+    private final Set<String> completed = new HashSet<String>();
+    // input path and document id of the document in each CAS
+    private final Map<CAS, String[]> inFlight = new IdentityHashMap<CAS, String[]>();
+    private final Writer out;
+    private long committed = 0;
+
+    private CheckpointManifest(String key, File file) throws IOException {
+        this.key = key;
+        if (file.exists()) {
+            long length = read(file, completed);
+            if (length < file.length()) {
+                // drop the cut-off line, so that the next line does not continue it
+                RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                try {
+                    raf.setLength(length);
+                } finally {
+                    raf.close();
+                }
+            }
+        }
+        out = new OutputStreamWriter(new FileOutputStream(file, true), "UTF-8");
+    }
+
+    /**
+     * Get the manifest of a file, reading the completed inputs if this is its
+     * first user. Every call has to be matched by a {@link #release()}.
+     */
+    public static CheckpointManifest acquire(File file) throws IOException {
+        String key = file.getAbsolutePath();
+        synchronized (SHARED) {
+            CheckpointManifest manifest = SHARED.get(key);
+            if (manifest == null) {
+                manifest = new CheckpointManifest(key, file);
+                SHARED.put(key, manifest);
+            }
+            manifest.users++;
+            return manifest;
+        }
+    }
+
+    /**
+     * Create the directory for the files that every attempt of a run writes
+     * anew, like the SRL log and its statistics, so that a resumed run does
+     * not overwrite those of the earlier attempts: run-0, run-1, ... in the
+     * output location.
+     */
+    public static File createAttemptDirectory(File outputLocation) throws IOException {
+        for (int i = 0;; i++) {
+            File directory = new File(outputLocation, ATTEMPT_PREFIX + i);
+            if (directory.mkdir()) {
+                return directory;
+            }
+            if (!directory.isDirectory()) {
+                throw new IOException("Unable to create " + directory);
+            }
+        }
+    }
+
+    /**
+     * Close the file if the caller was the last user.
+     *
+     * @return the number of documents committed in this run if the file was
+     *         closed, otherwise -1
+     */
+    public long release() throws IOException {
+        synchronized (SHARED) {
+            users--;
+            if (users > 0) {
+                return -1;
+            }
+            SHARED.remove(key);
+        }
+        synchronized (this) {
+            out.close();
+            return committed;
+        }
+    }
+
+    /**
+     * Read the input paths of the complete lines into the set.
+     *
+     * @return the length in bytes of the complete lines
+     */
+    static long read(File file, Set<String> inputPaths) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), 65536);
+        try {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long length = 0;
+            long position = 0;
+            int b;
+            while ((b = in.read()) != -1) {
+                position++;
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                String text = line.toString("UTF-8");
+                int tab = text.indexOf('\t');
+                if (tab > 0) {
+                    inputPaths.add(text.substring(0, tab));
+                }
+                line.reset();
+                length = position;
+            }
+            return length;
+        } finally {
+            IOUtils.closeQuietly(in);
+        }
+    }
+
+    /**
+     * @return whether the input file was completed by an earlier run
+     */
+    public boolean isCompleted(String inputPath) {
+        // only filled by the constructor
+        return completed.contains(inputPath);
+    }
+
+    /**
+     * @return the number of input files completed by earlier runs
+     */
+    public int getCompletedBefore() {
+        return completed.size();
+    }
+
+    /**
+     * The key of the document in a CAS while it is processed: the default
+     * view, which the reader, the annotators and the writers all see, whatever
+     * view of the CAS they are given.
+     */
+    public static CAS documentKey(CAS cas) {
+        return cas.getView(CAS.NAME_DEFAULT_SOFA);
+    }
+
+    /**
+     * Remember the input file of the document that was just read into the CAS.
+     *
+     * @param documentId only written to the manifest, may be null
+     * @throws IllegalStateException if the CAS still holds a document that was
+     *             not committed
+     */
+    public synchronized void started(CAS cas, String inputPath, String documentId) {
+        String[] previous = inFlight.put(documentKey(cas), new String[] { inputPath, documentId });
+        if (previous != null) {
+            throw new IllegalStateException("The CAS of " + inputPath + " still holds the uncommitted document of "
+                    + previous[0]);
+        }
+    }
+
+    /**
+     * Record the input file of the processed document in the CAS as
+     * completed.
+     *
+     * @return false if no input file was {@link #started} for the CAS
+     */
+    public synchronized boolean commit(CAS cas) throws IOException {
+        String[] document = inFlight.remove(documentKey(cas));
+        if (document == null) {
+            return false;
+        }
+        out.write(document[0] + "\t" + (document[1] == null ? "" : document[1]) + "\n");
+        out.flush();
+        committed++;
+        return true;
+    }
+}
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.utils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Deterministic split of the files of a corpus directory into shards.
+ *
+ * A file belongs to shard {@code hash(name) mod shardCount}, with the hash
+ * being {@link String#hashCode()}, which is fixed by the language
+ * specification. The assignment therefore does not depend on the machine, on
+ * the directory listing order or on the other files of the corpus, so shards
+ * can be processed independently on different machines.
+ *
+ */
+public class CorpusShards {
+
+    /**
+     * @return the shard of a file name
+     */
+    public static int shardOf(String name, int shardCount) {
+        return (name.hashCode() & Integer.MAX_VALUE) % shardCount;
+    }
+
+    /**
+     * Parse a shard given as "index/count", e.g. "3/16".
+     *
+     * @return index and count
+     */
+    public static int[] parseShard(String spec) {
+        String[] parts = spec.split("/");
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Shard must be given as index/count: " + spec);
+        }
+        int index = Integer.parseInt(parts[0].trim());
+        int count = Integer.parseInt(parts[1].trim());
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Invalid shard: " + spec);
+        }
+        return new int[] { index, count };
+    }
+
+    /**
+     * @return the names of the files directly in the directory that end with
+     *         the suffix and belong to the shard, sorted
+     */
+    public static List<String> select(File sourceDir, String suffix, int shard, int shardCount) {
+        List<String> names = new ArrayList<String>();
+        String[] files = sourceDir.list();
+        if (files == null) {
+            return names;
+        }
+        for (String name : files) {
+            if (name.endsWith(suffix) && shardOf(name, shardCount) == shard) {
+                names.add(name);
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * @return reader include patterns for the files of a shard, see
+     *         {@code ResourceCollectionReaderBase.PARAM_PATTERNS}; the
+     *         patterns have no wildcards, so the reader does not scan the
+     *         directory once per pattern
+     */
+    public static String[] patterns(File sourceDir, String suffix, int shard, int shardCount) {
+        List<String> names = select(sourceDir, suffix, shard, shardCount);
+        String[] patterns = new String[names.size()];
+        for (int i = 0; i < patterns.length; i++) {
+            patterns[i] = "[+]" + names.get(i);
+        }
+        return patterns;
+    }
+}
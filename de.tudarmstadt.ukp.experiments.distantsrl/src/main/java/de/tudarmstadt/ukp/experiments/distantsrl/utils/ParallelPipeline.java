@@ -0,0 +1,261 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.utils;
+
+import static java.util.Arrays.asList;
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngine;
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
+import static org.apache.uima.fit.factory.CollectionReaderFactory.createReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.analysis_engine.AnalysisEngineProcessException;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.cas.Type;
+import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.resource.metadata.MetaDataObject;
+import org.apache.uima.util.CasCreationUtils;
+
+import de.tudarmstadt.ukp.dkpro.core.api.segmentation.type.Sentence;
+
+/**
+ * Runs a pipeline like {@code SimplePipeline.runPipeline}, but with several
+ * worker threads.
+ *
+ * Every worker has its own instance of the whole engine chain and its own CAS.
+ * The workers take turns getting the next document from the shared reader and
+ * process it independently. Components that keep state across documents have
+ * to share or merge it themselves, like the role annotators do with their
+ * SemLink data and counts; each instance gets its own
+ * {@code collectionProcessComplete} call when the reader is exhausted.
+ *
+ * With {@link PipelineMetrics}, the engines of a worker run one after the
+ * other instead of as an aggregate, so that the reader and every engine can be
+ * timed.
+ *
+ */
+public class ParallelPipeline {
+
+    /**
+     * @param threads the number of workers; with one worker the pipeline runs
+     *            in the calling thread
+     */
+    public static void runPipeline(int threads, CollectionReaderDescription readerDesc,
+            AnalysisEngineDescription... descs)
+        throws UIMAException, IOException {
+        runPipeline(threads, null, readerDesc, descs);
+    }
+
+    /**
+     * @param metrics records the stages, or null
+     */
+    public static void runPipeline(int threads, PipelineMetrics metrics, CollectionReaderDescription readerDesc,
+            AnalysisEngineDescription... descs)
+        throws UIMAException, IOException {
+        CollectionReader reader = createReader(readerDesc);
+        List<AnalysisEngineDescription> stageDescs = metrics == null ? asList(createEngineDescription(descs))
+                : asList(descs);
+        Stages stages = metrics == null ? null : new Stages(metrics, readerDesc, descs);
+
+        List<Worker> workers = new ArrayList<Worker>();
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        try {
+            // the engines are created one after the other, the model loading of
+            // some components is not thread safe
+            for (int i = 0; i < Math.max(1, threads); i++) {
+                List<AnalysisEngine> engines = new ArrayList<AnalysisEngine>();
+                List<MetaDataObject> metaData = new ArrayList<MetaDataObject>();
+                metaData.add(reader.getMetaData());
+                for (AnalysisEngineDescription desc : stageDescs) {
+                    AnalysisEngine engine = createEngine(desc);
+                    engines.add(engine);
+                    metaData.add(engine.getMetaData());
+                }
+                CAS cas = CasCreationUtils.createCas(metaData);
+                workers.add(new Worker(reader, engines, cas, stages, failure));
+            }
+            reader.typeSystemInit(workers.get(0).cas.getTypeSystem());
+            if (metrics != null) {
+                metrics.start();
+            }
+
+            if (workers.size() == 1) {
+                workers.get(0).run();
+            } else {
+                List<Thread> running = new ArrayList<Thread>();
+                for (int i = 0; i < workers.size(); i++) {
+                    Thread thread = new Thread(workers.get(i), "pipeline-worker-" + i);
+                    thread.start();
+                    running.add(thread);
+                }
+                for (Thread thread : running) {
+                    try {
+                        thread.join();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            }
+        } finally {
+            for (Worker worker : workers) {
+                for (AnalysisEngine engine : worker.engines) {
+                    engine.destroy();
+                }
+            }
+            reader.close();
+            reader.destroy();
+            if (metrics != null) {
+                metrics.close();
+            }
+        }
+
+        rethrow(failure.get());
+    }
+
+    /**
+     * Throw the failure of a worker, if any, in the calling thread.
+     */
+    static void rethrow(Throwable t) throws UIMAException, IOException {
+        if (t instanceof UIMAException) {
+            throw (UIMAException) t;
+        }
+        if (t instanceof IOException) {
+            throw (IOException) t;
+        }
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        if (t != null) {
+            throw new UIMAException(t);
+        }
+    }
+
+    /**
+     * The latency histograms of the reader and the engines, shared by the
+     * workers. Stages of the same class are numbered, e.g. NoOpAnnotator#2.
+     */
+    static class Stages {
+        private final PipelineMetrics metrics;
+        final Log2Histogram reader;
+        private final Log2Histogram[] engines;
+
+        Stages(PipelineMetrics metrics, CollectionReaderDescription readerDesc, AnalysisEngineDescription[] descs) {
+            this.metrics = metrics;
+            Map<String, Integer> seen = new HashMap<String, Integer>();
+            reader = metrics.stage(stageName(readerDesc.getImplementationName(), seen));
+            engines = new Log2Histogram[descs.length];
+            for (int i = 0; i < descs.length; i++) {
+                engines[i] = metrics.stage(stageName(descs[i].getAnnotatorImplementationName(), seen));
+            }
+        }
+
+        private static String stageName(String className, Map<String, Integer> seen) {
+            // aggregates have no implementation
+            String name = className == null ? "Aggregate" : className.substring(className.lastIndexOf('.') + 1);
+            Integer count = seen.get(name);
+            seen.put(name, count == null ? 1 : count + 1);
+            return count == null ? name : name + "#" + (count + 1);
+        }
+
+        /**
+         * Run the engines one by one and time them as the stages from
+         * {@code first} on.
+         */
+        void process(List<AnalysisEngine> engines, int first, CAS cas) throws AnalysisEngineProcessException {
+            for (int i = 0; i < engines.size(); i++) {
+                long start = System.nanoTime();
+                engines.get(i).process(cas);
+                this.engines[first + i].record(System.nanoTime() - start);
+            }
+        }
+
+        static int sentences(CAS cas) {
+            Type sentenceType = cas.getTypeSystem().getType(Sentence.class.getName());
+            return sentenceType == null ? 0 : cas.getAnnotationIndex(sentenceType).size();
+        }
+
+        void recordDocument(CAS cas, int sentences) {
+            String text = cas.getDocumentText();
+            metrics.recordDocument(sentences, cas.getAnnotationIndex().size(), text == null ? 0 : text.length());
+        }
+    }
+
+    private static class Worker implements Runnable {
+        private final CollectionReader reader;
+        private final List<AnalysisEngine> engines;
+        private final CAS cas;
+        private final Stages stages;
+        private final AtomicReference<Throwable> failure;
+
+        public Worker(CollectionReader reader, List<AnalysisEngine> engines, CAS cas, Stages stages,
+                AtomicReference<Throwable> failure) {
+            this.reader = reader;
+            this.engines = engines;
+            this.cas = cas;
+            this.stages = stages;
+            this.failure = failure;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (failure.get() == null) {
+                    synchronized (reader) {
+                        if (!reader.hasNext()) {
+                            break;
+                        }
+                        long start = System.nanoTime();
+                        reader.getNext(cas);
+                        if (stages != null) {
+                            stages.reader.record(System.nanoTime() - start);
+                        }
+                    }
+                    if (stages == null) {
+                        engines.get(0).process(cas);
+                    } else {
+                        int sentences = Stages.sentences(cas);
+                        stages.process(engines, 0, cas);
+                        stages.recordDocument(cas, sentences);
+                    }
+                    cas.reset();
+                }
+                // a failed run is not completed, like in SimplePipeline
+                if (failure.get() == null) {
+                    for (AnalysisEngine engine : engines) {
+                        engine.collectionProcessComplete();
+                    }
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            }
+        }
+    }
+}
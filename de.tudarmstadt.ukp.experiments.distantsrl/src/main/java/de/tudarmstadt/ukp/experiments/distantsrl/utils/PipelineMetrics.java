@@ -0,0 +1,378 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.utils;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Per-stage metrics of a pipeline run: a latency histogram for the reader and
+ * every engine, documents and sentences per second, the CAS sizes, and
+ * process-wide counters like the UBY queries (see {@link #counter(String)}).
+ *
+ * {@link ParallelPipeline} records the stages; the metrics are written to a
+ * JSON file, or a CSV file if the name ends with .csv, every dump interval
+ * and when the run ends, and can be registered as {@link PipelineMetricsMXBean}.
+ * The file is replaced atomically, so it can be read while the run goes on.
+ *
+ */
+public class PipelineMetrics implements PipelineMetricsMXBean, Closeable {
+
+    public static final String OBJECT_NAME = "de.tudarmstadt.ukp.experiments.distantsrl:type=PipelineMetrics";
+
+    public static final String UBY_QUERIES = "ubyQueries";
+
+    private static final ConcurrentMap<String, AtomicLong> COUNTERS = new ConcurrentHashMap<String, AtomicLong>();
+
+    private final File outputFile;
+    private final long dumpIntervalSeconds;
+    private final boolean jmx;
+
+    private final Map<String, Log2Histogram> stages = new LinkedHashMap<String, Log2Histogram>();
+    private final AtomicLong documents = new AtomicLong();
+    private final AtomicLong sentences = new AtomicLong();
+    private final Log2Histogram casAnnotations = new Log2Histogram();
+    private final Log2Histogram casTextLength = new Log2Histogram();
+
+    private volatile long startNanos = System.nanoTime();
+    private ScheduledExecutorService scheduler;
+    private ObjectName registeredName;
+
+    /**
+     * @param outputFile the file the metrics are written to, or null
+     * @param dumpIntervalSeconds seconds between dumps, 0 writes the file only
+     *            at the end of the run
+     * @param jmx register the metrics with the platform MBean server
+     */
+    public PipelineMetrics(File outputFile, long dumpIntervalSeconds, boolean jmx) {
+        this.outputFile = outputFile;
+        this.dumpIntervalSeconds = dumpIntervalSeconds;
+        this.jmx = jmx;
+    }
+
+    /**
+     * @return the metrics for the pipeline switches, or null if they are off
+     */
+    public static PipelineMetrics create(String outputFile, long dumpIntervalSeconds, boolean jmx) {
+        if (outputFile.isEmpty() && !jmx) {
+            return null;
+        }
+        return new PipelineMetrics(outputFile.isEmpty() ? null : new File(outputFile), dumpIntervalSeconds, jmx);
+    }
+
+    /**
+     * @return the process-wide counter of the given name, reported by all
+     *         metrics
+     */
+    public static AtomicLong counter(String name) {
+        AtomicLong counter = COUNTERS.get(name);
+        if (counter == null) {
+            counter = new AtomicLong();
+            AtomicLong existing = COUNTERS.putIfAbsent(name, counter);
+            if (existing != null) {
+                counter = existing;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * @return the latency histogram (nanoseconds) of a stage, created on first
+     *         use; stages are reported in this order
+     */
+    public Log2Histogram stage(String name) {
+        synchronized (stages) {
+            Log2Histogram histogram = stages.get(name);
+            if (histogram == null) {
+                histogram = new Log2Histogram();
+                stages.put(name, histogram);
+            }
+            return histogram;
+        }
+    }
+
+    /**
+     * Count a document that went through all stages.
+     */
+    public void recordDocument(int sentenceCount, int annotationCount, int textLength) {
+        documents.incrementAndGet();
+        sentences.addAndGet(sentenceCount);
+        casAnnotations.record(annotationCount);
+        casTextLength.record(textLength);
+    }
+
+    /**
+     * Start the clock, the periodic dumps and the JMX registration.
+     */
+    public void start() {
+        startNanos = System.nanoTime();
+        if (jmx) {
+            try {
+                registeredName = new ObjectName(OBJECT_NAME);
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, registeredName);
+            } catch (JMException e) {
+                registeredName = null;
+                System.err.println("Could not register pipeline metrics: " + e);
+            }
+        }
+        if (outputFile != null && dumpIntervalSeconds > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "pipeline-metrics");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            scheduler.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        dump();
+                    } catch (IOException e) {
+                        System.err.println("Could not write pipeline metrics: " + e);
+                    }
+                }
+            }, dumpIntervalSeconds, dumpIntervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Stop the periodic dumps, write the final metrics and unregister them.
+     */
+    @Override
+    public void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            if (outputFile != null) {
+                dump();
+            }
+        } finally {
+            if (registeredName != null) {
+                try {
+                    ManagementFactory.getPlatformMBeanServer().unregisterMBean(registeredName);
+                } catch (JMException e) {
+                    // already gone
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the current metrics to the output file.
+     */
+    public synchronized void dump() throws IOException {
+        File tmp = new File(outputFile.getPath() + ".tmp");
+        Writer writer = null;
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), "UTF-8"));
+            if (outputFile.getName().endsWith(".csv")) {
+                writeCsv(writer);
+            } else {
+                writeJson(writer);
+            }
+            writer.close();
+            writer = null;
+            Files.move(tmp.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            IOUtils.closeQuietly(writer);
+            tmp.delete();
+        }
+    }
+
+    private Map<String, Log2Histogram> stages() {
+        synchronized (stages) {
+            return new LinkedHashMap<String, Log2Histogram>(stages);
+        }
+    }
+
+    private void writeJson(Writer w) throws IOException {
+        w.write("{\n");
+        w.write(format("  \"elapsedSeconds\": %.1f,\n", getElapsedSeconds()));
+        w.write(format("  \"documents\": %d,\n", getDocuments()));
+        w.write(format("  \"sentences\": %d,\n", getSentences()));
+        w.write(format("  \"documentsPerSecond\": %.3f,\n", getDocumentsPerSecond()));
+        w.write(format("  \"sentencesPerSecond\": %.3f,\n", getSentencesPerSecond()));
+        w.write("  \"counters\": {");
+        String separator = "";
+        for (Map.Entry<String, Long> counter : getCounters().entrySet()) {
+            w.write(format("%s\n    %s: %d", separator, quote(counter.getKey()), counter.getValue()));
+            separator = ",";
+        }
+        w.write("\n  },\n");
+        w.write("  \"casAnnotations\": ");
+        writeJson(w, casAnnotations, 1);
+        w.write(",\n  \"casTextLength\": ");
+        writeJson(w, casTextLength, 1);
+        w.write(",\n  \"stages\": [");
+        separator = "";
+        for (Map.Entry<String, Log2Histogram> stage : stages().entrySet()) {
+            w.write(format("%s\n    {\"name\": %s, \"latencyMicros\": ", separator, quote(stage.getKey())));
+            writeJson(w, stage.getValue(), 1000);
+            w.write("}");
+            separator = ",";
+        }
+        w.write("\n  ]\n}\n");
+    }
+
+    private static void writeJson(Writer w, Log2Histogram histogram, long unit) throws IOException {
+        w.write(format("{\"count\": %d, \"mean\": %.1f, \"p50\": %d, \"p90\": %d, \"p99\": %d, \"max\": %d, "
+                + "\"log2Buckets\": [", histogram.getCount(), histogram.getMean() / unit,
+                histogram.getPercentile(0.5) / unit, histogram.getPercentile(0.9) / unit,
+                histogram.getPercentile(0.99) / unit, histogram.getMax() / unit));
+        // the buckets are of the recorded values, up to the last non-empty one
+        long[] buckets = histogram.getBuckets();
+        int last = buckets.length - 1;
+        while (last > 0 && buckets[last] == 0) {
+            last--;
+        }
+        for (int b = 0; b <= last; b++) {
+            w.write(b == 0 ? Long.toString(buckets[b]) : ", " + buckets[b]);
+        }
+        w.write("]}");
+    }
+
+    private void writeCsv(Writer w) throws IOException {
+        w.write("metric,count,mean,p50,p90,p99,max\n");
+        for (Map.Entry<String, Log2Histogram> stage : stages().entrySet()) {
+            writeCsv(w, "stageMicros:" + stage.getKey(), stage.getValue(), 1000);
+        }
+        writeCsv(w, "casAnnotations", casAnnotations, 1);
+        writeCsv(w, "casTextLength", casTextLength, 1);
+        w.write(format("documents,%d,,,,,\n", getDocuments()));
+        w.write(format("sentences,%d,,,,,\n", getSentences()));
+        w.write(format("documentsPerSecond,,%.3f,,,,\n", getDocumentsPerSecond()));
+        w.write(format("sentencesPerSecond,,%.3f,,,,\n", getSentencesPerSecond()));
+        for (Map.Entry<String, Long> counter : getCounters().entrySet()) {
+            w.write(format("counter:%s,%d,,,,,\n", counter.getKey(), counter.getValue()));
+        }
+    }
+
+    private static void writeCsv(Writer w, String metric, Log2Histogram histogram, long unit) throws IOException {
+        w.write(format("%s,%d,%.1f,%d,%d,%d,%d\n", metric, histogram.getCount(), histogram.getMean() / unit,
+                histogram.getPercentile(0.5) / unit, histogram.getPercentile(0.9) / unit,
+                histogram.getPercentile(0.99) / unit, histogram.getMax() / unit));
+    }
+
+    private static String format(String format, Object... args) {
+        return String.format(Locale.ROOT, format, args);
+    }
+
+    private static String quote(String s) {
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    @Override
+    public double getElapsedSeconds() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    @Override
+    public long getDocuments() {
+        return documents.get();
+    }
+
+    @Override
+    public long getSentences() {
+        return sentences.get();
+    }
+
+    @Override
+    public double getDocumentsPerSecond() {
+        double seconds = getElapsedSeconds();
+        return seconds > 0 ? documents.get() / seconds : 0.0;
+    }
+
+    @Override
+    public double getSentencesPerSecond() {
+        double seconds = getElapsedSeconds();
+        return seconds > 0 ? sentences.get() / seconds : 0.0;
+    }
+
+    @Override
+    public double getMeanCasAnnotations() {
+        return casAnnotations.getMean();
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> counters = new TreeMap<String, Long>();
+        for (Map.Entry<String, AtomicLong> counter : COUNTERS.entrySet()) {
+            counters.put(counter.getKey(), counter.getValue().get());
+        }
+        return counters;
+    }
+
+    @Override
+    public Map<String, Long> getStageCounts() {
+        Map<String, Long> counts = new LinkedHashMap<String, Long>();
+        for (Map.Entry<String, Log2Histogram> stage : stages().entrySet()) {
+            counts.put(stage.getKey(), stage.getValue().getCount());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Double> getStageMeanMicros() {
+        Map<String, Double> means = new LinkedHashMap<String, Double>();
+        for (Map.Entry<String, Log2Histogram> stage : stages().entrySet()) {
+            means.put(stage.getKey(), stage.getValue().getMean() / 1000);
+        }
+        return means;
+    }
+
+    @Override
+    public Map<String, Long> getStageP99Micros() {
+        Map<String, Long> p99 = new LinkedHashMap<String, Long>();
+        for (Map.Entry<String, Log2Histogram> stage : stages().entrySet()) {
+            p99.put(stage.getKey(), stage.getValue().getPercentile(0.99) / 1000);
+        }
+        return p99;
+    }
+}
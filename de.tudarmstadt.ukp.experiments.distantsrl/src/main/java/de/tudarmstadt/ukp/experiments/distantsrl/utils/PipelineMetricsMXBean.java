@@ -0,0 +1,48 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.utils;
+
+import java.util.Map;
+
+/**
+ * JMX view of the {@link PipelineMetrics} of a running pipeline, e.g. in
+ * jconsole. Stage latencies are in microseconds.
+ *
+ */
+public interface PipelineMetricsMXBean {
+
+    double getElapsedSeconds();
+
+    long getDocuments();
+
+    long getSentences();
+
+    double getDocumentsPerSecond();
+
+    double getSentencesPerSecond();
+
+    double getMeanCasAnnotations();
+
+    Map<String, Long> getCounters();
+
+    Map<String, Long> getStageCounts();
+
+    Map<String, Double> getStageMeanMicros();
+
+    Map<String, Long> getStageP99Micros();
+}
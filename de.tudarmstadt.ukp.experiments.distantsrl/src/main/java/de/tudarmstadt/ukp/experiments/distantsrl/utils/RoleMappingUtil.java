@@ -27,17 +27,10 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Unmarshaller;
-import javax.xml.bind.annotation.XmlAttribute;
-import javax.xml.bind.annotation.XmlElement;
-import javax.xml.bind.annotation.XmlElementWrapper;
-import javax.xml.bind.annotation.XmlRootElement;
-import javax.xml.stream.XMLEventReader;
 import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.commons.io.IOUtils;
 
@@ -74,49 +67,7 @@ public class RoleMappingUtil {
      * @return
      */
     public static HashMap<String, HashMap<String, List<String>>> readSemLinkVnFn(String filepath) {
-        // Map vnclass_fnframe to map of arguments 
-        
-        HashMap<String, HashMap<String,List<String>>> roleMappingMap = new HashMap<String, HashMap<String,List<String>>>();
-        FileInputStream is = null;
-        try {
-            is = new FileInputStream(new File(filepath));
-            XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
-            xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
-            XMLEventReader xmlEventReader = xmlInputFactory.createXMLEventReader(is);
-            JAXBContext context = JAXBContext.newInstance(SemLinkFnVnRoleMapping.class);
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            XMLEvent e = null;
-            while ((e = xmlEventReader.peek()) != null){
-                SemLinkFnVnRoleMapping a = unmarshaller.unmarshal(xmlEventReader,SemLinkFnVnRoleMapping.class).getValue();
-                List<SemLinkVncls> mappings = a.mappings;
-                for (SemLinkVncls mapping:mappings){
-                    // key is combination of fn frame and vn class label 
-                    String key = mapping.fnframe + "%"+ mapping.vnclass;
-                    List<SemLinkRole> rolemappings = mapping.rolesList;
-                    // value is map of vn role label to fn role label(s)
-                    HashMap<String,List<String>> roleMap = new HashMap<String, List<String>>();
-                    for (SemLinkRole m : rolemappings){
-                        if (!roleMap.containsKey(m.vnrole)){
-                            roleMap.put(m.vnrole,new ArrayList<String>());
-                        } 
-                        roleMap.get(m.vnrole).add(m.fnrole);
-                    }
-                    roleMappingMap.put(key, roleMap);
-                }
-                xmlEventReader.next();
-            }
-        } catch (XMLStreamException e){
-            System.err.println("Error parsing xml of: " + filepath);
-            e.printStackTrace();
-        } catch (JAXBException e){
-            System.err.println("Error parsing xml of: " + filepath);
-            e.printStackTrace();
-        } catch (FileNotFoundException e) {
-            System.err.println("File could not be found: " + filepath);
-        } finally {
-            IOUtils.closeQuietly(is);
-        }
-        return roleMappingMap;
+        return readSemLink(filepath).getRoleMapping();
     }
     
     /**
@@ -125,77 +76,106 @@ public class RoleMappingUtil {
      * @return
      */
     public static HashMap<String, List<String>> readSemLinkClassMapping(String filepath) {
-        // Map fnframe to vnclass
-        
-        HashMap<String,List<String>> classMap = new HashMap<String,List<String>>();
+        return readSemLink(filepath).getClassMapping();
+    }
+
+    /**
+     * Load both mappings from semlink, using the binary snapshot next to the
+     * file if it is up to date. Otherwise the xml is parsed and the snapshot
+     * is (re)written for later runs.
+     * @param filepath
+     * @return
+     */
+    public static SemLinkMapping loadSemLink(String filepath) {
+        File source = new File(filepath);
+        File snapshot = SemLinkSnapshot.snapshotFile(filepath);
+        try {
+            SemLinkMapping mapping = SemLinkSnapshot.read(source, snapshot);
+            if (mapping != null) {
+                return mapping;
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read SemLink snapshot, falling back to xml: " + snapshot + " (" + e.getMessage() + ")");
+        }
+        SemLinkMapping mapping = readSemLink(filepath);
+        if (source.isFile() && mapping.getFrames().size() > 0) {
+            try {
+                SemLinkSnapshot.write(mapping, source, snapshot);
+            } catch (IOException e) {
+                System.err.println("Could not write SemLink snapshot: " + snapshot);
+            }
+        }
+        return mapping;
+    }
+
+    /**
+     * Compile semlink into a binary snapshot, see {@link SemLinkSnapshot}
+     * @param infile
+     * @param outfile
+     */
+    public static void writeSemLinkSnapshot(String infile, String outfile) throws IOException {
+        SemLinkSnapshot.write(readSemLink(infile), new File(infile), new File(outfile));
+    }
+
+    /**
+     * Read both the role mapping and the class mapping from semlink in a single
+     * streaming pass over the file
+     * @param filepath
+     * @return
+     */
+    public static SemLinkMapping readSemLink(String filepath) {
+        // Map vnclass_fnframe to map of arguments, and fnframe to vnclass 
+        SemLinkMapping.Builder builder = new SemLinkMapping.Builder();
         FileInputStream is = null;
+        XMLStreamReader xmlStreamReader = null;
         try {
             is = new FileInputStream(new File(filepath));
             XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
             xmlInputFactory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
-            XMLEventReader xmlEventReader = xmlInputFactory.createXMLEventReader(is);
-            JAXBContext context = JAXBContext.newInstance(SemLinkFnVnRoleMapping.class);
-            Unmarshaller unmarshaller = context.createUnmarshaller();
-            XMLEvent e = null;
-            while ((e = xmlEventReader.peek()) != null){
-                SemLinkFnVnRoleMapping a = unmarshaller.unmarshal(xmlEventReader,SemLinkFnVnRoleMapping.class).getValue();
-                List<SemLinkVncls> mappings = a.mappings;
-                for (SemLinkVncls mapping:mappings){
-                    
-                    if (!classMap.containsKey(mapping.fnframe)){
-                        classMap.put(mapping.fnframe,new ArrayList<String>());
-                        classMap.get(mapping.fnframe).add(mapping.vnclass);
-                    } else {
-                        classMap.get(mapping.fnframe).add(mapping.vnclass);
+            xmlStreamReader = xmlInputFactory.createXMLStreamReader(is);
+            String fnframe = null;
+            String vnclass = null;
+            HashMap<String,List<String>> roleMap = null;
+            while (xmlStreamReader.hasNext()) {
+                int event = xmlStreamReader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    String element = xmlStreamReader.getLocalName();
+                    if (element.equals("vncls")) {
+                        vnclass = xmlStreamReader.getAttributeValue(null, "class");
+                        fnframe = xmlStreamReader.getAttributeValue(null, "fnframe");
+                        // key is combination of fn frame and vn class label,
+                        // value is map of vn role label to fn role label(s)
+                        roleMap = new HashMap<String, List<String>>();
+                        builder.addClass(fnframe, vnclass);
+                    } else if (element.equals("role") && roleMap != null) {
+                        String vnrole = xmlStreamReader.getAttributeValue(null, "vnrole");
+                        if (!roleMap.containsKey(vnrole)){
+                            roleMap.put(vnrole,new ArrayList<String>());
+                        } 
+                        roleMap.get(vnrole).add(xmlStreamReader.getAttributeValue(null, "fnrole"));
                     }
+                } else if (event == XMLStreamConstants.END_ELEMENT && roleMap != null
+                        && xmlStreamReader.getLocalName().equals("vncls")) {
+                    builder.putRoles(fnframe, vnclass, roleMap);
+                    roleMap = null;
                 }
-                xmlEventReader.next();
             }
         } catch (XMLStreamException e){
             System.err.println("Error parsing xml of: " + filepath);
             e.printStackTrace();
-        } catch (JAXBException e){
-            System.err.println("Error parsing xml of: " + filepath);
-            e.printStackTrace();
         } catch (FileNotFoundException e) {
             System.err.println("File could not be found: " + filepath);
         } finally {
+            if (xmlStreamReader != null) {
+                try {
+                    xmlStreamReader.close();
+                } catch (XMLStreamException e) {
+                    // ignore, the underlying stream is closed below
+                }
+            }
             IOUtils.closeQuietly(is);
         }
-        return classMap;
-    }
-
-    
-    @XmlRootElement
-    static class SemLinkFnVnRoleMapping {
-
-        @XmlAttribute
-        public String name;
-        
-        @XmlElement (name = "vncls")
-        public List<SemLinkVncls> mappings;
-
-    }
-    
-    static class SemLinkVncls {
-        @XmlAttribute (name = "class")
-        public String vnclass;
-        
-        @XmlAttribute
-        public String fnframe;
-        
-        // several role instances via role
-        @XmlElementWrapper(name="roles")
-        @XmlElement(name="role")
-        public List<SemLinkRole> rolesList;
-    }
-    
-    static class SemLinkRole {
-        @XmlAttribute
-        public String fnrole;
-        
-        @XmlAttribute
-        public String vnrole;
+        return builder.build();
     }
         
 }
@@ -0,0 +1,312 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.utils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Both mappings read from the SemLink VerbNet-FrameNet role mapping file.
+ *
+ * FrameNet frames, FrameNet roles, VerbNet classes and VerbNet roles are
+ * interned into {@link SymbolTable}s and the mappings are stored as int arrays
+ * over these ids. For every (frame, VerbNet role) the FrameNet roles of all
+ * VerbNet classes of the frame are precomputed as a bitset of FrameNet role
+ * ids, so the role set of a multi-role label is the bitwise OR of a few
+ * bitsets.
+ *
+ * A mapping entry is one vncls element of the file, i.e. one (frame, class)
+ * pair with its vnrole -> fnroles list. As in the original maps, a later entry
+ * for the same pair replaces an earlier one, while the class list of a frame
+ * keeps every occurrence.
+ *
+ */
+public class SemLinkMapping {
+
+    private final SymbolTable frames;
+    private final SymbolTable vnClasses;
+    private final SymbolTable vnRoles;
+    private final SymbolTable fnRoles;
+
+    // frame -> class ids, in file order
+    private final int[][] classesByFrame;
+    // frame -> entry of the class at the same position
+    private final int[][] entriesByFrame;
+
+    // entry -> frame / class / vn role ids / fn role ids per vn role
+    private final int[] entryFrames;
+    private final int[] entryClasses;
+    private final int[][] entryVnRoles;
+    private final int[][][] entryFnRoles;
+
+    // frame * vnRoles.size() + vnRole -> fn role ids, null if there are none
+    private final BitSet[] fnRoleSets;
+
+    private SemLinkMapping(Builder builder) {
+        frames = builder.frames;
+        vnClasses = builder.vnClasses;
+        vnRoles = builder.vnRoles;
+        fnRoles = builder.fnRoles;
+
+        int entryCount = builder.entryFrames.size();
+        entryFrames = new int[entryCount];
+        entryClasses = new int[entryCount];
+        entryVnRoles = new int[entryCount][];
+        entryFnRoles = new int[entryCount][][];
+        for (int e = 0; e < entryCount; e++) {
+            entryFrames[e] = builder.entryFrames.get(e);
+            entryClasses[e] = builder.entryClasses.get(e);
+            entryVnRoles[e] = builder.entryVnRoles.get(e);
+            entryFnRoles[e] = builder.entryFnRoles.get(e);
+        }
+
+        classesByFrame = new int[frames.size()][];
+        entriesByFrame = new int[frames.size()][];
+        fnRoleSets = new BitSet[frames.size() * vnRoles.size()];
+        for (int f = 0; f < frames.size(); f++) {
+            List<Integer> classes = f < builder.classesByFrame.size() ? builder.classesByFrame.get(f)
+                    : new ArrayList<Integer>();
+            classesByFrame[f] = new int[classes.size()];
+            entriesByFrame[f] = new int[classes.size()];
+            for (int i = 0; i < classes.size(); i++) {
+                int c = classes.get(i);
+                Integer entry = builder.entryIndex.get(key(f, c));
+                classesByFrame[f][i] = c;
+                entriesByFrame[f][i] = entry == null ? -1 : entry;
+                if (entry == null) {
+                    continue;
+                }
+                for (int r = 0; r < entryVnRoles[entry].length; r++) {
+                    int slot = f * vnRoles.size() + entryVnRoles[entry][r];
+                    if (fnRoleSets[slot] == null) {
+                        fnRoleSets[slot] = new BitSet(fnRoles.size());
+                    }
+                    for (int fnRole : entryFnRoles[entry][r]) {
+                        fnRoleSets[slot].set(fnRole);
+                    }
+                }
+            }
+        }
+    }
+
+    public SymbolTable getFrames() {
+        return frames;
+    }
+
+    public SymbolTable getVnClasses() {
+        return vnClasses;
+    }
+
+    public SymbolTable getVnRoles() {
+        return vnRoles;
+    }
+
+    public SymbolTable getFnRoles() {
+        return fnRoles;
+    }
+
+    /**
+     * @return the FrameNet role ids the VerbNet role maps to in any VerbNet
+     *         class of the frame, or null if there are none. The bitset must
+     *         not be modified.
+     */
+    public BitSet getFnRoleSet(int frame, int vnRole) {
+        return fnRoleSets[frame * vnRoles.size() + vnRole];
+    }
+
+    /**
+     * @return the VerbNet class ids of the frame, in file order
+     */
+    public int[] getClasses(int frame) {
+        return classesByFrame[frame];
+    }
+
+    /**
+     * @return the FrameNet role ids the VerbNet role maps to for the class at
+     *         the given position of {@link #getClasses(int)}, in file order,
+     *         or null if there are none
+     */
+    public int[] getFnRoles(int frame, int classPosition, int vnRole) {
+        int entry = entriesByFrame[frame][classPosition];
+        if (entry < 0) {
+            return null;
+        }
+        int[] roles = entryVnRoles[entry];
+        for (int r = 0; r < roles.length; r++) {
+            if (roles[r] == vnRole) {
+                return entryFnRoles[entry][r];
+            }
+        }
+        return null;
+    }
+
+    int getEntryCount() {
+        return entryFrames.length;
+    }
+
+    int getEntryFrame(int entry) {
+        return entryFrames[entry];
+    }
+
+    int getEntryClass(int entry) {
+        return entryClasses[entry];
+    }
+
+    int[] getEntryVnRoles(int entry) {
+        return entryVnRoles[entry];
+    }
+
+    int[][] getEntryFnRoles(int entry) {
+        return entryFnRoles[entry];
+    }
+
+    /**
+     * Builds the string keyed map of the original format. Not meant for the
+     * labeling path.
+     * @return fnframe%vnclass -> (vnrole -> listOfFnroles)
+     */
+    public HashMap<String, HashMap<String, List<String>>> getRoleMapping() {
+        HashMap<String, HashMap<String, List<String>>> roleMappingMap = new HashMap<String, HashMap<String, List<String>>>();
+        for (int e = 0; e < entryFrames.length; e++) {
+            HashMap<String, List<String>> roleMap = new HashMap<String, List<String>>();
+            for (int r = 0; r < entryVnRoles[e].length; r++) {
+                List<String> roles = new ArrayList<String>(entryFnRoles[e][r].length);
+                for (int fnRole : entryFnRoles[e][r]) {
+                    roles.add(fnRoles.getSymbol(fnRole));
+                }
+                roleMap.put(vnRoles.getSymbol(entryVnRoles[e][r]), roles);
+            }
+            roleMappingMap.put(frames.getSymbol(entryFrames[e]) + "%" + vnClasses.getSymbol(entryClasses[e]), roleMap);
+        }
+        return roleMappingMap;
+    }
+
+    /**
+     * Builds the string keyed map of the original format. Not meant for the
+     * labeling path.
+     * @return fnframe -> vnclasses
+     */
+    public HashMap<String, List<String>> getClassMapping() {
+        HashMap<String, List<String>> classMap = new HashMap<String, List<String>>();
+        for (int f = 0; f < classesByFrame.length; f++) {
+            if (classesByFrame[f].length == 0) {
+                continue;
+            }
+            List<String> classes = new ArrayList<String>(classesByFrame[f].length);
+            for (int c : classesByFrame[f]) {
+                classes.add(vnClasses.getSymbol(c));
+            }
+            classMap.put(frames.getSymbol(f), classes);
+        }
+        return classMap;
+    }
+
+    private static long key(int frame, int vnClass) {
+        return ((long) frame << 32) | (vnClass & 0xffffffffL);
+    }
+
+    /**
+     * Collects the entries of a mapping, either by string while parsing the
+     * xml or by id while reading a snapshot.
+     */
+    public static class Builder {
+
+        private final SymbolTable frames;
+        private final SymbolTable vnClasses;
+        private final SymbolTable vnRoles;
+        private final SymbolTable fnRoles;
+
+        private final List<List<Integer>> classesByFrame = new ArrayList<List<Integer>>();
+        private final HashMap<Long, Integer> entryIndex = new HashMap<Long, Integer>();
+        private final List<Integer> entryFrames = new ArrayList<Integer>();
+        private final List<Integer> entryClasses = new ArrayList<Integer>();
+        private final List<int[]> entryVnRoles = new ArrayList<int[]>();
+        private final List<int[][]> entryFnRoles = new ArrayList<int[][]>();
+
+        public Builder() {
+            this(new SymbolTable(), new SymbolTable(), new SymbolTable(), new SymbolTable());
+        }
+
+        /**
+         * Builder for ids of existing symbol tables.
+         */
+        public Builder(SymbolTable frames, SymbolTable vnClasses, SymbolTable vnRoles, SymbolTable fnRoles) {
+            this.frames = frames;
+            this.vnClasses = vnClasses;
+            this.vnRoles = vnRoles;
+            this.fnRoles = fnRoles;
+        }
+
+        /**
+         * Appends a class to the class list of a frame.
+         */
+        public Builder addClass(String frame, String vnClass) {
+            return addClass(frames.add(frame), vnClasses.add(vnClass));
+        }
+
+        public Builder addClass(int frame, int vnClass) {
+            while (classesByFrame.size() <= frame) {
+                classesByFrame.add(new ArrayList<Integer>(2));
+            }
+            classesByFrame.get(frame).add(vnClass);
+            return this;
+        }
+
+        /**
+         * Sets the vnrole -> fnroles mapping of a (frame, class) pair,
+         * replacing an earlier one.
+         */
+        public Builder putRoles(String frame, String vnClass, Map<String, List<String>> roleMap) {
+            int[] vnRoleIds = new int[roleMap.size()];
+            int[][] fnRoleIds = new int[roleMap.size()][];
+            int r = 0;
+            for (Map.Entry<String, List<String>> e : roleMap.entrySet()) {
+                vnRoleIds[r] = vnRoles.add(e.getKey());
+                fnRoleIds[r] = new int[e.getValue().size()];
+                for (int i = 0; i < fnRoleIds[r].length; i++) {
+                    fnRoleIds[r][i] = fnRoles.add(e.getValue().get(i));
+                }
+                r++;
+            }
+            return putRoles(frames.add(frame), vnClasses.add(vnClass), vnRoleIds, fnRoleIds);
+        }
+
+        public Builder putRoles(int frame, int vnClass, int[] vnRoleIds, int[][] fnRoleIds) {
+            Long key = key(frame, vnClass);
+            Integer entry = entryIndex.get(key);
+            if (entry == null) {
+                entryIndex.put(key, entryFrames.size());
+                entryFrames.add(frame);
+                entryClasses.add(vnClass);
+                entryVnRoles.add(vnRoleIds);
+                entryFnRoles.add(fnRoleIds);
+            } else {
+                entryVnRoles.set(entry, vnRoleIds);
+                entryFnRoles.set(entry, fnRoleIds);
+            }
+            return this;
+        }
+
+        public SemLinkMapping build() {
+            return new SemLinkMapping(this);
+        }
+    }
+}
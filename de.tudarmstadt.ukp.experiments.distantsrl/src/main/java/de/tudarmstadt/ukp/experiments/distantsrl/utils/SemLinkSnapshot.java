@@ -0,0 +1,277 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Compact binary snapshot of a {@link SemLinkMapping}.
+ *
+ * The snapshot holds the symbol tables of the mapping and refers to them by
+ * integer id, so loading it is a sequential scan over a memory mapped file
+ * instead of an XML parse. The mapped pages live in the OS page cache and are
+ * shared by all JVMs on a host that load the same snapshot. The header records
+ * the length and CRC32 of the SemLink file the snapshot was compiled from, so
+ * a snapshot of an older version of the file is detected and not used.
+ *
+ * Layout (big endian): magic, version, source length, source CRC32, the
+ * symbol tables of frames, VerbNet classes, VerbNet roles and FrameNet roles,
+ * the class ids of every frame, and the mapping entries as id arrays. Loading
+ * fills the id based {@link SemLinkMapping} directly, no string keys are built.
+ *
+ */
+public class SemLinkSnapshot {
+
+    public static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private static final int MAGIC = 0x534C4E4B; // "SLNK"
+    private static final int VERSION = 2;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * @return the default snapshot location for a SemLink file
+     */
+    public static File snapshotFile(String filepath) {
+        return new File(filepath + SNAPSHOT_SUFFIX);
+    }
+
+    /**
+     * Compile the mapping into a snapshot. The snapshot is written to a
+     * temporary file first and then moved into place, so concurrent readers
+     * never see a partially written snapshot.
+     */
+    public static void write(SemLinkMapping mapping, File source, File snapshot) throws IOException {
+        long[] checksum = checksum(source);
+
+        File tmp = new File(snapshot.getPath() + ".tmp" + System.nanoTime());
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 65536));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(checksum[0]);
+            out.writeLong(checksum[1]);
+
+            writeSymbols(out, mapping.getFrames());
+            writeSymbols(out, mapping.getVnClasses());
+            writeSymbols(out, mapping.getVnRoles());
+            writeSymbols(out, mapping.getFnRoles());
+
+            for (int f = 0; f < mapping.getFrames().size(); f++) {
+                writeIds(out, mapping.getClasses(f));
+            }
+
+            out.writeInt(mapping.getEntryCount());
+            for (int e = 0; e < mapping.getEntryCount(); e++) {
+                out.writeInt(mapping.getEntryFrame(e));
+                out.writeInt(mapping.getEntryClass(e));
+                writeIds(out, mapping.getEntryVnRoles(e));
+                for (int[] fnRoles : mapping.getEntryFnRoles(e)) {
+                    writeIds(out, fnRoles);
+                }
+            }
+            out.close();
+            out = null;
+            Files.move(tmp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            IOUtils.closeQuietly(out);
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Load a snapshot if it exists and was compiled from the current version
+     * of the source file.
+     *
+     * @return the mapping, or null if the snapshot is missing, stale or of a
+     *         different format version
+     * @throws IOException if the snapshot is corrupt, e.g. cut off or with ids
+     *             outside the symbol tables
+     */
+    public static SemLinkMapping read(File source, File snapshot) throws IOException {
+        if (!snapshot.isFile() || !source.isFile()) {
+            return null;
+        }
+        RandomAccessFile file = null;
+        try {
+            file = new RandomAccessFile(snapshot, "r");
+            FileChannel channel = file.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 24 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null;
+            }
+            long length = buffer.getLong();
+            long crc = buffer.getLong();
+            // compare the cheap length first, the checksum needs a pass over the source
+            if (length != source.length()) {
+                return null;
+            }
+            long[] checksum = checksum(source);
+            if (length != checksum[0] || crc != checksum[1]) {
+                return null;
+            }
+
+            SymbolTable frames = readSymbols(buffer);
+            SymbolTable vnClasses = readSymbols(buffer);
+            SymbolTable vnRoles = readSymbols(buffer);
+            SymbolTable fnRoles = readSymbols(buffer);
+            SemLinkMapping.Builder builder = new SemLinkMapping.Builder(frames, vnClasses, vnRoles, fnRoles);
+
+            for (int f = 0; f < frames.size(); f++) {
+                for (int vnClass : readIds(buffer, vnClasses)) {
+                    builder.addClass(f, vnClass);
+                }
+            }
+
+            int entryCount = readCount(buffer, 12);
+            for (int e = 0; e < entryCount; e++) {
+                int frame = readId(buffer, frames);
+                int vnClass = readId(buffer, vnClasses);
+                int[] vnRoleIds = readIds(buffer, vnRoles);
+                int[][] fnRoleIds = new int[vnRoleIds.length][];
+                for (int r = 0; r < vnRoleIds.length; r++) {
+                    fnRoleIds[r] = readIds(buffer, fnRoles);
+                }
+                builder.putRoles(frame, vnClass, vnRoleIds, fnRoleIds);
+            }
+            return builder.build();
+        } finally {
+            IOUtils.closeQuietly(file);
+        }
+    }
+
+    /**
+     * @return length and CRC32 of the file
+     */
+    static long[] checksum(File file) throws IOException {
+        CRC32 crc = new CRC32();
+        long length = 0;
+        InputStream is = null;
+        try {
+            is = new FileInputStream(file);
+            byte[] buf = new byte[65536];
+            int n;
+            while ((n = is.read(buf)) != -1) {
+                crc.update(buf, 0, n);
+                length += n;
+            }
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+        return new long[] { length, crc.getValue() };
+    }
+
+    private static void writeSymbols(DataOutputStream out, SymbolTable symbols) throws IOException {
+        out.writeInt(symbols.size());
+        for (int i = 0; i < symbols.size(); i++) {
+            String s = symbols.getSymbol(i);
+            if (s == null) {
+                out.writeInt(-1);
+            } else {
+                byte[] bytes = s.getBytes(UTF8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static SymbolTable readSymbols(ByteBuffer buffer) throws IOException {
+        SymbolTable symbols = new SymbolTable();
+        int count = readCount(buffer, 4);
+        for (int i = 0; i < count; i++) {
+            symbols.add(readString(buffer));
+        }
+        return symbols;
+    }
+
+    private static void writeIds(DataOutputStream out, int[] ids) throws IOException {
+        out.writeInt(ids.length);
+        for (int id : ids) {
+            out.writeInt(id);
+        }
+    }
+
+    private static int[] readIds(ByteBuffer buffer, SymbolTable symbols) throws IOException {
+        int[] ids = new int[readCount(buffer, 4)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = readId(buffer, symbols);
+        }
+        return ids;
+    }
+
+    private static int readId(ByteBuffer buffer, SymbolTable symbols) throws IOException {
+        checkRemaining(buffer, 4);
+        int id = buffer.getInt();
+        if (id < 0 || id >= symbols.size()) {
+            throw new IOException("Corrupt SemLink snapshot: id " + id + " outside a symbol table of "
+                    + symbols.size());
+        }
+        return id;
+    }
+
+    private static String readString(ByteBuffer buffer) throws IOException {
+        checkRemaining(buffer, 4);
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        checkRemaining(buffer, length);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Read the length of a list and check that the rest of the snapshot can
+     * hold that many elements of at least the given size, so that a corrupt
+     * length does not allocate a huge array.
+     */
+    private static int readCount(ByteBuffer buffer, int minElementSize) throws IOException {
+        checkRemaining(buffer, 4);
+        int count = buffer.getInt();
+        if (count < 0 || (long) count * minElementSize > buffer.remaining()) {
+            throw new IOException("Corrupt SemLink snapshot: " + count + " elements at offset "
+                    + (buffer.position() - 4) + ", " + buffer.remaining() + " bytes left");
+        }
+        return count;
+    }
+
+    private static void checkRemaining(ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            throw new IOException("Corrupt SemLink snapshot: cut off at offset " + buffer.position());
+        }
+    }
+
+}
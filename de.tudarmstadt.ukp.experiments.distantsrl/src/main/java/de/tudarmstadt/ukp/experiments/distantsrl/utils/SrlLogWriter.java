@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.utils;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Batched writer for the SRL log file of the role annotators.
+ *
+ * Records are copied into a large write buffer and flushed to the file every
+ * {@code flushRecords} records or after {@code flushInterval} milliseconds,
+ * whichever comes first, and on {@link #close()}. The interval is also checked
+ * by a background thread, so records do not stay in the buffer while no new
+ * ones arrive, e.g. during a long parse. With {@code flushRecords}
+ * set to 1 every record is flushed as it is written; with both limits set to 0
+ * the file is only flushed when the buffer is full and on close. The file can
+ * be gzip compressed.
+ *
+ * The writer is thread safe, several annotator instances can share it.
+ *
+ */
+public class SrlLogWriter implements Flushable, Closeable {
+
+    public static final String GZIP_SUFFIX = ".gz";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer out;
+    private final int flushRecords;
+    private final long flushInterval;
+
+    private char[] chars = new char[256];
+    private int pending = 0;
+    private long lastFlush;
+    private final ScheduledExecutorService flusher;
+    private boolean closed = false;
+
+    /**
+     * @param file the log file; with compression, ".gz" is appended unless the
+     *            name already ends with it
+     * @param compress gzip the log
+     * @param flushRecords flush after this many records, 0 for no limit
+     * @param flushInterval flush pending records this many milliseconds
+     *            after the last flush, 0 for no limit
+     */
+    public SrlLogWriter(File file, boolean compress, int flushRecords, long flushInterval) throws IOException {
+        this.flushRecords = flushRecords;
+        this.flushInterval = flushInterval;
+        OutputStream os = null;
+        try {
+            if (compress) {
+                if (!file.getName().endsWith(GZIP_SUFFIX)) {
+                    file = new File(file.getPath() + GZIP_SUFFIX);
+                }
+                // sync flush, so a flush makes all records written so far readable
+                os = new GZIPOutputStream(new FileOutputStream(file), BUFFER_SIZE, true);
+            } else {
+                os = new FileOutputStream(file);
+            }
+            out = new BufferedWriter(new OutputStreamWriter(os, "UTF-8"), BUFFER_SIZE);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(os);
+            throw e;
+        }
+        lastFlush = System.currentTimeMillis();
+        if (flushInterval > 0) {
+            flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "srl-log-flush");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            flusher.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        flushIfDue();
+                    } catch (IOException e) {
+                        // the next write or the close reports the broken file
+                    }
+                }
+            }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    private synchronized void flushIfDue() throws IOException {
+        if (!closed && pending > 0 && System.currentTimeMillis() - lastFlush >= flushInterval) {
+            flush();
+        }
+    }
+
+    /**
+     * Write a record and a line break. The record is copied, so the caller can
+     * reuse its builder for the next record.
+     */
+    public synchronized void write(CharSequence record) throws IOException {
+        int length = record.length();
+        if (chars.length < length + 1) {
+            chars = new char[Math.max(length + 1, chars.length * 2)];
+        }
+        if (record instanceof StringBuilder) {
+            ((StringBuilder) record).getChars(0, length, chars, 0);
+        } else {
+            record.toString().getChars(0, length, chars, 0);
+        }
+        chars[length] = '\n';
+        out.write(chars, 0, length + 1);
+        pending++;
+
+        if (flushRecords > 0 && pending >= flushRecords) {
+            flush();
+        } else if (flushInterval > 0 && System.currentTimeMillis() - lastFlush >= flushInterval) {
+            flush();
+        }
+    }
+
+    /**
+     * Write text as is, e.g. the summary at the end of a run.
+     */
+    public synchronized void writeRaw(String text) throws IOException {
+        out.write(text);
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        out.flush();
+        pending = 0;
+        lastFlush = System.currentTimeMillis();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        closed = true;
+        out.close();
+    }
+}
@@ -0,0 +1,329 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.utils;
+
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngine;
+import static org.apache.uima.fit.factory.AnalysisEngineFactory.createEngineDescription;
+import static org.apache.uima.fit.factory.CollectionReaderFactory.createReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.uima.UIMAException;
+import org.apache.uima.analysis_engine.AnalysisEngine;
+import org.apache.uima.analysis_engine.AnalysisEngineDescription;
+import org.apache.uima.cas.CAS;
+import org.apache.uima.collection.CollectionReader;
+import org.apache.uima.collection.CollectionReaderDescription;
+import org.apache.uima.resource.metadata.MetaDataObject;
+import org.apache.uima.util.CasCreationUtils;
+
+/**
+ * Runs a pipeline as three stages connected by bounded queues: the reader, a
+ * number of annotation workers with their own instances of the analysis
+ * engines, and the writers, so that reading, annotating and writing overlap.
+ *
+ * The documents are read into a fixed pool of CASes. A CAS goes back to the
+ * pool after the writers, so a slow stage blocks the stages before it instead
+ * of letting documents pile up in memory. The writers run in one thread and
+ * see the documents in the order in which the workers finish them. Like in
+ * {@link ParallelPipeline}, each engine instance gets its own
+ * {@code collectionProcessComplete} call, the workers' ones before the
+ * writers'.
+ *
+ */
+public class StagedPipeline {
+
+    private static final Slot END = new Slot(null);
+
+    private final CollectionReader reader;
+    private final List<List<AnalysisEngine>> workerEngines = new ArrayList<List<AnalysisEngine>>();
+    private final List<AnalysisEngine> writerEngines = new ArrayList<AnalysisEngine>();
+    private final PipelineMetrics metrics;
+    private final ParallelPipeline.Stages stages;
+
+    private final BlockingQueue<Slot> free;
+    private final BlockingQueue<Slot> toAnnotate;
+    private final BlockingQueue<Slot> toWrite;
+    private final AtomicInteger runningWorkers = new AtomicInteger();
+    private final List<Thread> threads = new ArrayList<Thread>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+    /**
+     * @param threads the number of annotation workers
+     * @param queueSize the capacity of each queue; the pool has enough CASes
+     *            to fill both queues and keep every stage busy. With 0, the
+     *            workers of a {@link ParallelPipeline} run the engines and the
+     *            writers.
+     * @param metrics records the stages, or null
+     * @param writerDescs the engines of the writer stage
+     * @param descs the engines of the annotation workers
+     */
+    public static void runPipeline(int threads, int queueSize, PipelineMetrics metrics,
+            CollectionReaderDescription readerDesc, AnalysisEngineDescription[] writerDescs,
+            AnalysisEngineDescription... descs)
+        throws UIMAException, IOException {
+        if (queueSize <= 0) {
+            ParallelPipeline.runPipeline(threads, metrics, readerDesc, concat(descs, writerDescs));
+            return;
+        }
+        new StagedPipeline(Math.max(1, threads), queueSize, metrics, readerDesc, writerDescs, descs).run();
+    }
+
+    private static AnalysisEngineDescription[] concat(AnalysisEngineDescription[] first,
+            AnalysisEngineDescription[] second) {
+        AnalysisEngineDescription[] all = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        return all;
+    }
+
+    private StagedPipeline(int threads, int queueSize, PipelineMetrics metrics,
+            CollectionReaderDescription readerDesc, AnalysisEngineDescription[] writerDescs,
+            AnalysisEngineDescription[] descs)
+        throws UIMAException, IOException {
+        this.metrics = metrics;
+        reader = createReader(readerDesc);
+        if (metrics == null) {
+            stages = null;
+        } else {
+            stages = new ParallelPipeline.Stages(metrics, readerDesc, concat(descs, writerDescs));
+        }
+        int poolSize = 2 * queueSize + threads + 2;
+        free = new ArrayBlockingQueue<Slot>(poolSize);
+        toAnnotate = new ArrayBlockingQueue<Slot>(queueSize);
+        toWrite = new ArrayBlockingQueue<Slot>(queueSize);
+
+        try {
+            // the engines are created one after the other, the model loading of
+            // some components is not thread safe
+            for (int i = 0; i < threads; i++) {
+                workerEngines.add(createEngines(metrics, descs));
+            }
+            writerEngines.addAll(createEngines(metrics, writerDescs));
+
+            List<MetaDataObject> metaData = new ArrayList<MetaDataObject>();
+            metaData.add(reader.getMetaData());
+            for (AnalysisEngine engine : workerEngines.get(0)) {
+                metaData.add(engine.getMetaData());
+            }
+            for (AnalysisEngine engine : writerEngines) {
+                metaData.add(engine.getMetaData());
+            }
+            // all CASes share one type system, the reader is initialized with it
+
+            CAS first = CasCreationUtils.createCas(metaData);
+            free.add(new Slot(first));
+            for (int i = 1; i < poolSize; i++) {
+                free.add(new Slot(CasCreationUtils.createCas(metaData, first.getTypeSystem(), null)));
+            }
+            reader.typeSystemInit(first.getTypeSystem());
+        } catch (UIMAException e) {
+            destroy();
+            throw e;
+        } catch (RuntimeException e) {
+            destroy();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the engines, or one aggregate of them if the stages are not
+     *         timed
+     */
+    private static List<AnalysisEngine> createEngines(PipelineMetrics metrics, AnalysisEngineDescription[] descs)
+        throws UIMAException {
+        List<AnalysisEngine> engines = new ArrayList<AnalysisEngine>();
+        if (metrics == null) {
+            engines.add(createEngine(createEngineDescription(descs)));
+        } else {
+            for (AnalysisEngineDescription desc : descs) {
+                engines.add(createEngine(desc));
+            }
+        }
+        return engines;
+    }
+
+    private void run() throws UIMAException, IOException {
+        try {
+            threads.add(new Thread(new ReaderStage(), "pipeline-reader"));
+            for (int i = 0; i < workerEngines.size(); i++) {
+                threads.add(new Thread(new WorkerStage(workerEngines.get(i)), "pipeline-worker-" + i));
+            }
+            threads.add(new Thread(new WriterStage(), "pipeline-writer"));
+            runningWorkers.set(workerEngines.size());
+            if (metrics != null) {
+                metrics.start();
+            }
+            for (Thread thread : threads) {
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fail(e);
+                }
+            }
+        } finally {
+            destroy();
+            if (metrics != null) {
+                metrics.close();
+            }
+        }
+        ParallelPipeline.rethrow(failure.get());
+    }
+
+    private void destroy() throws IOException {
+        for (List<AnalysisEngine> engines : workerEngines) {
+            for (AnalysisEngine engine : engines) {
+                engine.destroy();
+            }
+        }
+        for (AnalysisEngine engine : writerEngines) {
+            engine.destroy();
+        }
+        reader.close();
+        reader.destroy();
+    }
+
+    /**
+     * Record the first failure and stop all stages, also those blocked on a
+     * queue.
+     */
+    private void fail(Throwable t) {
+        if (failure.compareAndSet(null, t)) {
+            for (Thread thread : threads) {
+                if (thread != Thread.currentThread()) {
+                    thread.interrupt();
+                }
+            }
+        }
+    }
+
+    /**
+     * A CAS of the pool; {@link #END} marks the end of the documents.
+     */
+    private static class Slot {
+        final CAS cas;
+
+        Slot(CAS cas) {
+            this.cas = cas;
+        }
+    }
+
+    private abstract class Stage implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                work();
+            } catch (InterruptedException e) {
+                // stopped by the failure of another stage
+                if (failure.get() == null) {
+                    fail(e);
+                }
+            } catch (Throwable t) {
+                fail(t);
+            }
+        }
+
+        abstract void work() throws Exception;
+    }
+
+    private class ReaderStage extends Stage {
+
+        @Override
+        void work() throws Exception {
+            while (reader.hasNext()) {
+                Slot slot = free.take();
+                long start = System.nanoTime();
+                reader.getNext(slot.cas);
+                if (stages != null) {
+                    stages.reader.record(System.nanoTime() - start);
+                }
+                toAnnotate.put(slot);
+            }
+            for (int i = 0; i < workerEngines.size(); i++) {
+                toAnnotate.put(END);
+            }
+        }
+    }
+
+    private class WorkerStage extends Stage {
+        private final List<AnalysisEngine> engines;
+
+        WorkerStage(List<AnalysisEngine> engines) {
+            this.engines = engines;
+        }
+
+        @Override
+        void work() throws Exception {
+            Slot slot;
+            while ((slot = toAnnotate.take()) != END) {
+                if (stages == null) {
+                    engines.get(0).process(slot.cas);
+                } else {
+                    stages.process(engines, 0, slot.cas);
+                }
+                toWrite.put(slot);
+            }
+            // a failed run is not completed, like in SimplePipeline
+            if (failure.get() == null) {
+                for (AnalysisEngine engine : engines) {
+                    engine.collectionProcessComplete();
+                }
+            }
+            // the last worker lets the writers complete
+            if (runningWorkers.decrementAndGet() == 0) {
+                toWrite.put(END);
+            }
+        }
+    }
+
+    private class WriterStage extends Stage {
+
+        @Override
+        void work() throws Exception {
+            int first = workerEngines.get(0).size();
+            Slot slot;
+            while ((slot = toWrite.take()) != END) {
+                if (stages == null) {
+                    writerEngines.get(0).process(slot.cas);
+                } else {
+                    int sentences = ParallelPipeline.Stages.sentences(slot.cas);
+                    stages.process(writerEngines, first, slot.cas);
+                    stages.recordDocument(slot.cas, sentences);
+                }
+                slot.cas.reset();
+                free.put(slot);
+            }
+            if (failure.get() == null) {
+                for (AnalysisEngine engine : writerEngines) {
+                    engine.collectionProcessComplete();
+                }
+            }
+        }
+    }
+}
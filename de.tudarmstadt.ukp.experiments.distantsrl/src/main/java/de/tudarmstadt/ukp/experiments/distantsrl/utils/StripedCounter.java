@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counter for many threads, like the {@code LongAdder} of Java 8: a thread
+ * adds to one of several cells, chosen by its id, and reading sums the cells.
+ * Each cell has a cache line of its own, so threads that count at the same
+ * time do not contend.
+ *
+ */
+public class StripedCounter {
+
+    private static final int PADDING = 8; // longs per 64 byte cache line
+    private static final int STRIPES = Integer.highestOneBit(
+            2 * Math.max(1, Runtime.getRuntime().availableProcessors()) - 1) << 1;
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    public void add(long delta) {
+        cells.addAndGet(cell(), delta);
+    }
+
+    public void increment() {
+        add(1);
+    }
+
+    /**
+     * @return the sum of the cells; additions that happen meanwhile may or may
+     *         not be included
+     */
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    private static int cell() {
+        // spread the consecutive thread ids over the stripes
+        long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return ((int) (hash >>> 32) & (STRIPES - 1)) * PADDING;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(sum());
+    }
+}
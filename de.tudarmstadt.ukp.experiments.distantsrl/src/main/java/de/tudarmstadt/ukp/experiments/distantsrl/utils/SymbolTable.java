@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright 2016
+ * Ubiquitous Knowledge Processing (UKP) Lab
+ * Technische Universität Darmstadt
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package de.tudarmstadt.ukp.experiments.distantsrl.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Assigns dense integer ids to strings, in the order they are first added.
+ *
+ */
+public class SymbolTable {
+
+    private final HashMap<String, Integer> ids = new HashMap<String, Integer>();
+    private final ArrayList<String> symbols = new ArrayList<String>();
+
+    /**
+     * @return the id of the symbol, a new one if it was not added before
+     */
+    public int add(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id == null) {
+            id = symbols.size();
+            ids.put(symbol, id);
+            symbols.add(symbol);
+        }
+        return id;
+    }
+
+    /**
+     * @return the id of the symbol, or -1 if it is unknown
+     */
+    public int getId(String symbol) {
+        Integer id = ids.get(symbol);
+        return id == null ? -1 : id;
+    }
+
+    public String getSymbol(int id) {
+        return symbols.get(id);
+    }
+
+    public int size() {
+        return symbols.size();
+    }
+}